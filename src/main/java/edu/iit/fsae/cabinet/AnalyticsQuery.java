@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import edu.iit.fsae.cabinet.entities.ChannelSummary;
+import edu.iit.fsae.cabinet.util.StatisticsBinaryFormat;
+import edu.iit.fsae.cabinet.util.tracking.TrackerDefinition;
+import edu.iit.fsae.cabinet.util.tracking.TrackerRegistry;
+import edu.iit.fsae.cabinet.util.tracking.TrackingPolicy;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An aggregate of a single statistic, evaluated for each log within a session date range.
+ * <p>
+ * Aggregates which can be answered from the summaries of a log are read from them. Any other aggregate, which can be
+ * any registered tracker type, is computed by streaming the statistic from the binary statistics of the log.
+ *
+ * @author Noah Husby
+ */
+@Getter
+public class AnalyticsQuery {
+
+    public static final int DEFAULT_LIMIT = 200;
+    public static final int MAX_LIMIT = 1000;
+    /**
+     * Aggregates which are read from the summary of a statistic.
+     */
+    public static final List<String> SUMMARY_AGGREGATES = Arrays.asList("min", "max", "mean", "last", "count", "duration");
+
+    private final String channel;
+    private final String aggregate;
+    private final int limit;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final TrackerDefinition definition;
+
+    /**
+     * @param channel    The name of the statistic.
+     * @param aggregate  A summary aggregate, or a tracker type.
+     * @param threshold  The threshold of {@code time_above} aggregates.
+     * @param percentile The percentile of {@code percentile} aggregates.
+     * @param limit      The maximum amount of logs, starting from the most recent.
+     * @param from       The inclusive start of the session date range, or null.
+     * @param to         The inclusive end of the session date range, or null.
+     * @throws IllegalArgumentException If the aggregate is unknown, or is missing a parameter.
+     */
+    public AnalyticsQuery(String channel, String aggregate, Double threshold, Double percentile, int limit, LocalDateTime from, LocalDateTime to) {
+        this.channel = channel;
+        this.aggregate = aggregate;
+        this.limit = limit;
+        this.from = from;
+        this.to = to;
+        if (SUMMARY_AGGREGATES.contains(aggregate)) {
+            definition = null;
+        } else {
+            definition = new TrackerDefinition(aggregate, channel, aggregate, threshold, percentile);
+            definition.validate();
+        }
+    }
+
+    /**
+     * @return True if the aggregate can be answered from the summary of a statistic.
+     */
+    public boolean isSummaryAggregate() {
+        return definition == null;
+    }
+
+    /**
+     * Reads the aggregate from the summary of a statistic.
+     *
+     * @param summary {@link ChannelSummary}
+     * @return The aggregate.
+     */
+    public double fromSummary(ChannelSummary summary) {
+        switch (aggregate) {
+            case "min":
+                return summary.getMin();
+            case "max":
+                return summary.getMax();
+            case "mean":
+                return summary.getMean();
+            case "last":
+                return summary.getLast();
+            case "count":
+                return summary.getCount();
+            default:
+                return (summary.getLastTimestamp() - summary.getFirstTimestamp()) / 1000.0;
+        }
+    }
+
+    /**
+     * Computes the aggregate by streaming the statistic from a binary statistics file.
+     *
+     * @param binary The binary statistics file.
+     * @return The aggregate, or NaN if the statistic has no samples in the file.
+     */
+    public double scan(File binary) throws IOException {
+        try (
+                StatisticsBinaryFormat.Reader reader = new StatisticsBinaryFormat.Reader(binary);
+        ) {
+            int column = reader.getColumnByName(channel);
+            if (column < 0) {
+                return Double.NaN;
+            }
+            if (isSummaryAggregate()) {
+                ChannelSummary summary = new ChannelSummary();
+                reader.scan(column, summary::post);
+                return summary.getCount() == 0 ? Double.NaN : fromSummary(summary);
+            }
+            TrackingPolicy policy = TrackerRegistry.create(definition);
+            reader.scan(column, policy::post);
+            return policy.get();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import edu.iit.fsae.cabinet.entities.Log;
+import edu.iit.fsae.cabinet.util.ParallelZipOutputStream;
+import edu.iit.fsae.cabinet.util.StatisticsBinaryFormat;
+import edu.iit.fsae.cabinet.util.Util;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+/**
+ * Handles the zip archives of logs.
+ * <p>
+ * By default, archives are streamed to the client when requested, so they always reflect the current files of a log
+ * and take no extra space on disk. In materialized mode, archives are instead written to disk once a log is processed.
+ * Either way, files are deflated in parallel at the configured level, except for those with a stored extension, such
+ * as sheets, which are already compressed.
+ *
+ * @author Noah Husby
+ */
+@Slf4j
+public class ArchiveHandler {
+    @Getter
+    private static final ArchiveHandler instance = new ArchiveHandler();
+
+    /**
+     * The expected compression ratio of plain-text logs, used to estimate the size of an archive.
+     */
+    private static final double TEXT_COMPRESSION_RATIO = 0.25;
+
+    private static final String DEFAULT_STORED_EXTENSIONS = "xlsx,zip,gz";
+
+    @Getter
+    private final boolean materialize;
+    private final int level;
+    private final Set<String> storedExtensions;
+    private final int parallelism;
+    private final ExecutorService compressionThreads;
+
+    protected ArchiveHandler() {
+        materialize = Boolean.parseBoolean(System.getenv("CABINET_MATERIALIZE_ARCHIVES"));
+        String level = System.getenv("CABINET_ZIP_LEVEL");
+        this.level = level == null ? Deflater.DEFAULT_COMPRESSION : Integer.parseInt(level);
+        if (this.level < Deflater.DEFAULT_COMPRESSION || this.level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("CABINET_ZIP_LEVEL must be between -1 and 9.");
+        }
+        String storedExtensions = System.getenv("CABINET_ZIP_STORED_EXTENSIONS");
+        this.storedExtensions = Arrays.stream((storedExtensions == null ? DEFAULT_STORED_EXTENSIONS : storedExtensions).split(","))
+                .map(extension -> extension.trim().toLowerCase())
+                .filter(extension -> !extension.isEmpty())
+                .collect(Collectors.toSet());
+        parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        compressionThreads = Executors.newFixedThreadPool(parallelism);
+        Runtime.getRuntime().addShutdownHook(new Thread(compressionThreads::shutdown));
+    }
+
+    /**
+     * Handles the archive of a processed log, and updates the size of the log.
+     * In streaming mode, a previously materialized archive is removed, since it would go stale.
+     *
+     * @param log {@link Log}
+     * @throws UncheckedIOException If the archive could not be materialized, which stops the log from being recorded as processed.
+     */
+    public void handle(Log log) {
+        File zip = getArchiveFile(log.getId());
+        if (!materialize) {
+            try {
+                if (Files.deleteIfExists(zip.toPath())) {
+                    ArchiveHandler.log.info("Removed materialized archive of Log #{}.", log.getId());
+                }
+            } catch (IOException e) {
+                ArchiveHandler.log.warn("Failed to remove materialized archive of log: {}", log.getId(), e);
+            }
+            log.setSize(Util.humanReadableBytes(estimateSize(log)));
+            return;
+        }
+        if (!zip.exists()) {
+            // Written aside and moved in place, so a partial archive is never served
+            File temp = new File(zip.getParentFile(), zip.getName() + ".tmp");
+            try {
+                long start = System.currentTimeMillis();
+                write(log, new BufferedOutputStream(new FileOutputStream(temp)));
+                Files.move(temp.toPath(), zip.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                ArchiveHandler.log.info("Archived Log #{} to {} in {} ms.", log.getId(), Util.humanReadableBytes(zip.length()), (System.currentTimeMillis() - start));
+            } catch (IOException e) {
+                temp.delete();
+                throw new UncheckedIOException("Failed to zip log: " + log.getId(), e);
+            } catch (RuntimeException e) {
+                temp.delete();
+                throw e;
+            }
+        }
+        log.setSize(Util.humanReadableBytes(zip.length()));
+    }
+
+    /**
+     * Gets the materialized archive file of a log.
+     *
+     * @param id Id of log.
+     * @return The archive file.
+     */
+    public File getArchiveFile(int id) {
+        return new File(LogHandler.getInstance().getLogDirectory(id), id + ".zip");
+    }
+
+    /**
+     * Estimates the size of the archive of a log, without building it.
+     * Text files are assumed to compress at a fixed ratio. For logs whose statistics text was removed by earlier
+     * versions, the binary statistics stand in for the compressed statistics text, which they are close to in size.
+     *
+     * @param log {@link Log}
+     * @return The estimated size in bytes.
+     */
+    public long estimateSize(Log log) {
+        int id = log.getId();
+        File parent = LogHandler.getInstance().getLogDirectory(id);
+        long size = (long) (new File(parent, id + ".txt").length() * TEXT_COMPRESSION_RATIO);
+        size += new File(parent, "manifest.json").length();
+        File stats = new File(parent, id + ".stats");
+        if (stats.exists()) {
+            size += (long) ((stats.length() + new File(parent, id + ".map.stats").length()) * TEXT_COMPRESSION_RATIO);
+        } else {
+            size += new File(parent, id + StatisticsBinaryFormat.EXTENSION).length();
+        }
+        size += SheetCache.getInstance().getSheetFile(id).length();
+        return size;
+    }
+
+    /**
+     * Writes the archive of a log to a stream, which is closed once the archive is complete.
+     * Both streamed and materialized archives are written here, so they hold the same entries: the manifest, the
+     * plain-text log, the text statistics with their mapping, and the sheet. Internal files, such as the binary
+     * statistics and indexes, are left out. In lazy mode, the sheet is rendered first if it does not exist, and is left
+     * out if the render fails.
+     *
+     * @param log {@link Log}
+     * @param os  The stream to write the archive to.
+     */
+    public void write(Log log, OutputStream os) throws IOException {
+        int id = log.getId();
+        File parent = LogHandler.getInstance().getLogDirectory(id);
+        File binary = new File(parent, id + StatisticsBinaryFormat.EXTENSION);
+        // The sheet is pinned until the archive is complete, as it is read while other entries are compressed
+        File sheet = null;
+        if (log.isDoesSheetExist()) {
+            try {
+                sheet = SheetCache.getInstance().acquireSheet(log).join();
+            } catch (CompletionException e) {
+                // The log and its statistics are still worth archiving without the sheet
+                ArchiveHandler.log.warn("Failed to render sheet for log: {}, archiving it without the sheet.", id, e.getCause());
+            }
+        }
+        try (
+                ParallelZipOutputStream zip = new ParallelZipOutputStream(os, compressionThreads, level, parallelism, storedExtensions);
+        ) {
+            zip.putFile("manifest.json", new File(parent, "manifest.json"));
+            zip.putFile(id + ".txt", new File(parent, id + ".txt"));
+            if (Util.doesChildFileExist(parent, id + ".stats") && Util.doesChildFileExist(parent, id + ".map.stats")) {
+                zip.putFile(id + ".map.stats", new File(parent, id + ".map.stats"));
+                zip.putFile(id + ".stats", new File(parent, id + ".stats"));
+            } else if (binary.exists()) {
+                // Statistics text removed by earlier versions is regenerated from the binary statistics
+                try (
+                        StatisticsBinaryFormat.Reader reader = new StatisticsBinaryFormat.Reader(binary);
+                        Writer writer = new OutputStreamWriter(zip.putDeflated(id + ".map.stats", 0), StandardCharsets.UTF_8);
+                ) {
+                    Constants.GSON.toJson(reader.getStatisticsMap(), writer);
+                }
+                try (
+                        OutputStream entry = zip.putDeflated(id + ".stats", binary.length() * 8);
+                ) {
+                    StatisticsBinaryFormat.toText(binary, entry);
+                }
+            }
+            if (sheet != null) {
+                zip.putFile(id + ".xlsx", sheet);
+            }
+        } finally {
+            if (sheet != null) {
+                SheetCache.getInstance().release(id);
+            }
+        }
+    }
+}
@@ -20,20 +20,48 @@
 
 package edu.iit.fsae.cabinet;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import edu.iit.fsae.cabinet.entities.Log;
+import edu.iit.fsae.cabinet.util.LineIndex;
+import edu.iit.fsae.cabinet.util.MultipartStreamReader;
+import edu.iit.fsae.cabinet.util.StatisticsBinaryFormat;
+import edu.iit.fsae.cabinet.util.StatisticsQuery;
 import edu.iit.fsae.cabinet.util.Util;
+import edu.iit.fsae.cabinet.util.VirtualThreadPool;
+import edu.iit.fsae.cabinet.util.VirtualThreads;
+import edu.iit.fsae.cabinet.util.tracking.TrackerRegistry;
+import edu.iit.fsae.cabinet.util.tracking.TrackerSet;
 import io.javalin.Javalin;
 import io.javalin.http.BadRequestResponse;
+import io.javalin.http.ConflictResponse;
+import io.javalin.http.Context;
+import io.javalin.http.HttpResponseException;
 import io.javalin.http.NotFoundResponse;
-import io.javalin.http.UploadedFile;
 import io.javalin.http.staticfiles.Location;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Server;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * @author Noah Husby
@@ -44,10 +72,17 @@ public class Cabinet {
     @Getter
     private static final Cabinet instance = new Cabinet();
 
+    private static final int DEFAULT_LINES = 100;
+    private static final int MAX_LINES = 10000;
+    private static final long DEFAULT_MAX_UPLOAD_SIZE = 4L * 1024 * 1024 * 1024;
+    private static final Pattern BYTE_RANGE = Pattern.compile("(\\d*)\\s*-\\s*(\\d*)");
+
     private final Javalin app;
 
     @Getter
     private final File folder;
+    @Getter
+    private final long maxUploadSize;
 
     protected Cabinet() {
         String filesDirectory = System.getenv("CABINET_DIR");
@@ -58,6 +93,8 @@ public class Cabinet {
         if (folder.mkdirs()) {
             log.info("Storage directory does not exist. Creating at: {}", filesDirectory);
         }
+        String maxUploadSize = System.getenv("CABINET_MAX_UPLOAD_SIZE");
+        this.maxUploadSize = maxUploadSize == null ? DEFAULT_MAX_UPLOAD_SIZE : Long.parseLong(maxUploadSize);
         app = configure(folder);
     }
 
@@ -65,7 +102,11 @@ public class Cabinet {
      * Starts the Cabinet server.
      */
     private void start() {
+        // Read the tracker configuration up front, so an invalid configuration fails before any log is processed
+        TrackerRegistry.getDefinitions();
         LogHandler.getInstance().load();
+        UploadHandler.getInstance().load();
+        SearchIndex.getInstance().load(LogHandler.getInstance().getSortedLogs().values());
         log.info("Starting server...");
         app.start(80);
         Runtime.getRuntime().addShutdownHook(new Thread(app::stop));
@@ -79,6 +120,9 @@ public class Cabinet {
     private static Javalin configure(File folder) {
         Javalin app = Javalin.create(config -> {
             config.showJavalinBanner = false;
+            if (VirtualThreads.isEnabled()) {
+                config.server(() -> new Server(new VirtualThreadPool()));
+            }
             config.addStaticFiles("/public", Location.CLASSPATH);
             config.addStaticFiles(s -> {
                 s.directory = folder.getAbsolutePath();
@@ -86,39 +130,479 @@ public class Cabinet {
                 s.hostedPath = "/files";
             });
         });
+        app.exception(IngestPipeline.SaturatedException.class, (e, ctx) -> {
+            ctx.header("Retry-After", String.valueOf(IngestPipeline.RETRY_AFTER_SECONDS));
+            ctx.status(503).result(e.getMessage());
+        });
+        app.exception(UploadHandler.PendingLimitException.class, (e, ctx) -> ctx.status(503).result(e.getMessage()));
         app.post(Constants.API_V1_PATH + "/logs", ctx -> {
             if (!ctx.queryParamMap().containsKey("date")) {
                 throw new BadRequestResponse("The 'date' parameter has not been set.");
             }
             long epoch = ctx.queryParamAsClass("date", Long.class).get();
             LocalDateTime date = Instant.ofEpochSecond(epoch).atOffset(ZoneOffset.UTC).toLocalDateTime();
-            UploadedFile logFile = ctx.uploadedFile("log");
-            if (logFile == null) {
-                throw new BadRequestResponse("The 'log' file has not been attached.");
+            String boundary = MultipartStreamReader.getBoundary(ctx.contentType());
+            if (boundary == null) {
+                throw new BadRequestResponse("The request must be multipart/form-data.");
             }
-            UploadedFile statsFile = ctx.uploadedFile("stats");
-            UploadedFile statsMapFile = ctx.uploadedFile("stats_map");
-            if (statsFile != null && statsMapFile == null) {
-                throw new BadRequestResponse("The 'stats' file was attached, but the 'stats_map' file is missing.");
+            long maxUploadSize = Cabinet.getInstance().getMaxUploadSize();
+            if (ctx.contentLength() > maxUploadSize) {
+                throw new HttpResponseException(413, "The upload exceeds the maximum size of " + Util.humanReadableBytes(maxUploadSize) + ".", Collections.emptyMap());
+            }
+            Log log;
+            try {
+                log = LogHandler.getInstance().postNewLog(date, ctx.req.getInputStream(), boundary, maxUploadSize);
+            } catch (MultipartStreamReader.SizeLimitException e) {
+                throw new HttpResponseException(413, e.getMessage(), Collections.emptyMap());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestResponse(e.getMessage());
             }
-            Log log = LogHandler.getInstance().postNewLog(date, logFile, statsFile, statsMapFile);
             ctx.json(Constants.EXPOSED_GSON.toJson(log));
         });
-        app.get(Constants.API_V1_PATH + "/logs/{log}", ctx -> {
-            String id = ctx.pathParam("log");
-            if (!Util.isInteger(id)) {
-                throw new BadRequestResponse();
+        app.get(Constants.API_V1_PATH + "/logs/{log}", ctx -> ctx.json(Constants.GSON.toJson(getLog(ctx))));
+        app.get(Constants.API_V1_PATH + "/logs/{log}/stats", ctx -> {
+            Log log = getLog(ctx);
+            String channels = ctx.queryParam("channels");
+            if (channels == null || channels.isBlank()) {
+                throw new BadRequestResponse("The 'channels' parameter has not been set.");
             }
-            Log log = LogHandler.getInstance().getLog(Integer.parseInt(id));
-            if (log == null) {
-                throw new NotFoundResponse();
+            Long from = ctx.queryParamAsClass("from", Long.class).allowNullable().get();
+            Long to = ctx.queryParamAsClass("to", Long.class).allowNullable().get();
+            int points = ctx.queryParamAsClass("points", Integer.class)
+                    .check(p -> p >= 2 && p <= StatisticsQuery.MAX_POINTS, "The 'points' parameter must be between 2 and " + StatisticsQuery.MAX_POINTS + ".")
+                    .getOrDefault(StatisticsQuery.DEFAULT_POINTS);
+            File binary = new File(LogHandler.getInstance().getLogDirectory(log.getId()), log.getId() + StatisticsBinaryFormat.EXTENSION);
+            if (!binary.exists()) {
+                throw new NotFoundResponse("No statistics have been processed for this log.");
+            }
+            StatisticsQuery query = new StatisticsQuery(Arrays.stream(channels.split(",")).map(String::trim).collect(Collectors.toList()), from, to, points);
+            try {
+                ctx.json(Constants.GSON.toJson(query.run(binary)));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestResponse(e.getMessage());
+            }
+        });
+        app.get(Constants.API_V1_PATH + "/logs/{log}/trackers", ctx -> {
+            Log log = getLog(ctx);
+            LogSession session = log.isLive() ? LogHandler.getInstance().getSession(log.getId()) : null;
+            if (session != null) {
+                ctx.json(Constants.GSON.toJson(session.getTrackedStatistics()));
+                return;
+            }
+            File binary = new File(LogHandler.getInstance().getLogDirectory(log.getId()), log.getId() + StatisticsBinaryFormat.EXTENSION);
+            if (!binary.exists()) {
+                throw new NotFoundResponse("No statistics have been processed for this log.");
+            }
+            TrackerSet trackers = new TrackerSet();
+            try (
+                    StatisticsBinaryFormat.Reader reader = new StatisticsBinaryFormat.Reader(binary);
+            ) {
+                trackers.track(reader);
+            }
+            ctx.json(Constants.GSON.toJson(trackers.toJson()));
+        });
+        app.get(Constants.API_V1_PATH + "/trackers", ctx -> ctx.json(Constants.GSON.toJson(TrackerRegistry.getDefinitions())));
+        app.get(Constants.API_V1_PATH + "/metrics", ctx -> {
+            JsonObject object = new JsonObject();
+            object.add("render", RenderScheduler.getInstance().getMetrics());
+            ctx.json(Constants.GSON.toJson(object));
+        });
+        app.get(Constants.API_V1_PATH + "/analytics", ctx -> {
+            String channel = ctx.queryParam("channel");
+            String aggregate = ctx.queryParam("aggregate");
+            if (channel == null || channel.isBlank() || aggregate == null || aggregate.isBlank()) {
+                throw new BadRequestResponse("The 'channel' and 'aggregate' parameters must be set.");
+            }
+            AnalyticsQuery query;
+            try {
+                query = new AnalyticsQuery(
+                        channel.trim(),
+                        aggregate.trim(),
+                        ctx.queryParamAsClass("threshold", Double.class).allowNullable().get(),
+                        ctx.queryParamAsClass("percentile", Double.class).allowNullable().get(),
+                        ctx.queryParamAsClass("limit", Integer.class)
+                                .check(l -> l >= 1 && l <= AnalyticsQuery.MAX_LIMIT, "The 'limit' parameter must be between 1 and " + AnalyticsQuery.MAX_LIMIT + ".")
+                                .getOrDefault(AnalyticsQuery.DEFAULT_LIMIT),
+                        getDateParam(ctx, "from"),
+                        getDateParam(ctx, "to")
+                );
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestResponse(e.getMessage());
+            }
+            JsonObject object = new JsonObject();
+            object.addProperty("channel", query.getChannel());
+            object.addProperty("aggregate", query.getAggregate());
+            object.add("points", Constants.COMPACT_GSON.toJsonTree(LogHandler.getInstance().aggregate(query)));
+            ctx.contentType("application/json");
+            ctx.result(Constants.COMPACT_GSON.toJson(object));
+        });
+        app.get(Constants.API_V1_PATH + "/logs/{log}/lines", ctx -> {
+            Log log = getLog(ctx);
+            if (log.isLive()) {
+                throw new ConflictResponse("The log is still being recorded.");
+            }
+            long from = ctx.queryParamAsClass("from", Long.class)
+                    .check(f -> f >= 0, "The 'from' parameter must not be negative.")
+                    .getOrDefault(0L);
+            int count = ctx.queryParamAsClass("count", Integer.class)
+                    .check(c -> c >= 1 && c <= MAX_LINES, "The 'count' parameter must be between 1 and " + MAX_LINES + ".")
+                    .getOrDefault(DEFAULT_LINES);
+            File text = new File(LogHandler.getInstance().getLogDirectory(log.getId()), log.getId() + ".txt");
+            if (!text.isFile()) {
+                throw new NotFoundResponse("The log file could not be found.");
+            }
+            File index = LogHandler.getInstance().getLineIndex(log);
+            JsonObject object = new JsonObject();
+            object.addProperty("from", from);
+            object.addProperty("total", LineIndex.getLineCount(index));
+            JsonArray lines = new JsonArray();
+            LineIndex.readLines(text, index, from, count).forEach(lines::add);
+            object.add("lines", lines);
+            ctx.json(Constants.GSON.toJson(object));
+        });
+        app.get(Constants.API_V1_PATH + "/logs/{log}/sheet", ctx -> {
+            Log log = getLog(ctx);
+            ctx.header("Content-Disposition", "attachment; filename=\"" + log.getId() + ".xlsx\"");
+            serveSheet(ctx, log);
+        });
+        app.get(Constants.API_V1_PATH + "/logs", ctx -> {
+            if (!ctx.queryParamMap().isEmpty()) {
+                LogQuery query = new LogQuery(
+                        ctx.queryParamAsClass("limit", Integer.class)
+                                .check(l -> l >= 1 && l <= LogQuery.MAX_LIMIT, "The 'limit' parameter must be between 1 and " + LogQuery.MAX_LIMIT + ".")
+                                .getOrDefault(LogQuery.DEFAULT_LIMIT),
+                        ctx.queryParamAsClass("before", Integer.class).allowNullable().get(),
+                        getDateParam(ctx, "from"),
+                        getDateParam(ctx, "to"),
+                        getDateParam(ctx, "uploadedFrom"),
+                        getDateParam(ctx, "uploadedTo"),
+                        ctx.queryParamAsClass("hasSheet", Boolean.class).allowNullable().get()
+                );
+                List<Log> page = LogHandler.getInstance().query(query);
+                JsonObject object = new JsonObject();
+                boolean hasMore = page.size() > query.getLimit();
+                if (hasMore) {
+                    page = page.subList(0, query.getLimit());
+                }
+                object.add("logs", Constants.LISTING_GSON.toJsonTree(page));
+                if (hasMore) {
+                    object.addProperty("next", page.get(page.size() - 1).getId());
+                }
+                ctx.contentType("application/json");
+                ctx.result(Constants.COMPACT_GSON.toJson(object));
+                return;
+            }
+            LogHandler.Listing listing = LogHandler.getInstance().getListing();
+            ctx.header("ETag", listing.getEtag());
+            ctx.header("Cache-Control", "no-cache");
+            ctx.header("Vary", "Accept-Encoding");
+            if (listing.matches(ctx.header("If-None-Match"))) {
+                ctx.status(304);
+                return;
+            }
+            ctx.contentType("application/json");
+            if (Util.acceptsEncoding(ctx.header("Accept-Encoding"), "gzip")) {
+                ctx.header("Content-Encoding", "gzip");
+                ctx.result(listing.getGzip());
+            } else {
+                ctx.result(listing.getJson());
             }
-            ctx.json(Constants.GSON.toJson(log));
         });
-        app.get(Constants.API_V1_PATH + "/logs", ctx -> ctx.json(Constants.GSON.toJson(LogHandler.getInstance().getSortedLogsAsJson())));
+        app.get(Constants.API_V1_PATH + "/search", ctx -> {
+            String query = ctx.queryParam("q");
+            if (query == null || query.isBlank()) {
+                throw new BadRequestResponse("The 'q' parameter has not been set.");
+            }
+            int limit = ctx.queryParamAsClass("limit", Integer.class)
+                    .check(l -> l >= 1 && l <= SearchIndex.MAX_LIMIT, "The 'limit' parameter must be between 1 and " + SearchIndex.MAX_LIMIT + ".")
+                    .getOrDefault(SearchIndex.DEFAULT_LIMIT);
+            try {
+                ctx.json(Constants.GSON.toJson(SearchIndex.getInstance().search(query, limit)));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestResponse(e.getMessage());
+            }
+        });
+        app.post(Constants.API_V1_PATH + "/sessions", ctx -> {
+            if (!ctx.queryParamMap().containsKey("date")) {
+                throw new BadRequestResponse("The 'date' parameter has not been set.");
+            }
+            long epoch = ctx.queryParamAsClass("date", Long.class).get();
+            LocalDateTime date = Instant.ofEpochSecond(epoch).atOffset(ZoneOffset.UTC).toLocalDateTime();
+            LogSession session = LogHandler.getInstance().openSession(date, ctx.uploadedFile("stats_map"));
+            ctx.json(Constants.EXPOSED_GSON.toJson(session.getLogMetadata()));
+        });
+        app.get(Constants.API_V1_PATH + "/sessions/{log}", ctx -> {
+            LogSession session = getSession(ctx);
+            JsonObject object = Constants.GSON.toJsonTree(session.getLogMetadata()).getAsJsonObject();
+            object.add("trackedStatistics", session.getTrackedStatistics());
+            ctx.json(Constants.GSON.toJson(object));
+        });
+        app.put(Constants.API_V1_PATH + "/sessions/{log}/stats_map", ctx -> {
+            getSession(ctx).setStatsMap(ctx.bodyAsInputStream());
+            ctx.status(204);
+        });
+        app.post(Constants.API_V1_PATH + "/sessions/{log}/log", ctx -> {
+            getSession(ctx).appendLog(ctx.bodyAsInputStream());
+            ctx.status(204);
+        });
+        app.post(Constants.API_V1_PATH + "/sessions/{log}/stats", ctx -> {
+            try {
+                getSession(ctx).appendStats(ctx.bodyAsInputStream());
+            } catch (IllegalStateException e) {
+                throw new BadRequestResponse(e.getMessage());
+            }
+            ctx.status(204);
+        });
+        app.post(Constants.API_V1_PATH + "/sessions/{log}/close", ctx -> {
+            LogSession session = getSession(ctx);
+            LogHandler.getInstance().closeSession(session);
+            ctx.json(Constants.EXPOSED_GSON.toJson(session.getLogMetadata()));
+        });
+        app.post(Constants.API_V1_PATH + "/uploads", ctx -> {
+            if (!ctx.queryParamMap().containsKey("date")) {
+                throw new BadRequestResponse("The 'date' parameter has not been set.");
+            }
+            long epoch = ctx.queryParamAsClass("date", Long.class).get();
+            UploadHandler.Request request = Constants.GSON.fromJson(ctx.body(), UploadHandler.Request.class);
+            try {
+                if (request == null) {
+                    throw new IllegalArgumentException("The request body is empty.");
+                }
+                request.validate();
+                UploadHandler.Upload upload = UploadHandler.getInstance().create(epoch, request.chunkSize, request.files);
+                ctx.json(Constants.GSON.toJson(upload.toJson()));
+            } catch (MultipartStreamReader.SizeLimitException e) {
+                throw new HttpResponseException(413, e.getMessage(), Collections.emptyMap());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new BadRequestResponse(e.getMessage());
+            }
+        });
+        app.get(Constants.API_V1_PATH + "/uploads/{upload}", ctx -> ctx.json(Constants.GSON.toJson(getUpload(ctx).toJson())));
+        app.put(Constants.API_V1_PATH + "/uploads/{upload}/{file}", ctx -> {
+            UploadHandler.Upload upload = getUpload(ctx);
+            long offset = ctx.queryParamAsClass("offset", Long.class).get();
+            try {
+                UploadHandler.getInstance().writeChunk(upload, ctx.pathParam("file"), offset, ctx.req.getInputStream(), ctx.header(UploadHandler.CHECKSUM_HEADER));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestResponse(e.getMessage());
+            }
+            ctx.status(204);
+        });
+        app.post(Constants.API_V1_PATH + "/uploads/{upload}/complete", ctx -> {
+            try {
+                Log log = UploadHandler.getInstance().complete(getUpload(ctx));
+                ctx.json(Constants.EXPOSED_GSON.toJson(log));
+            } catch (IllegalStateException e) {
+                throw new ConflictResponse(e.getMessage());
+            }
+        });
+        app.get("/files/{log}/{file}", Cabinet::serveLogFile);
         return app;
     }
 
+    /**
+     * Gets the log referenced by the 'log' path parameter.
+     *
+     * @param ctx {@link Context}
+     * @return {@link Log}
+     */
+    private static Log getLog(Context ctx) {
+        String id = ctx.pathParam("log");
+        if (!Util.isInteger(id)) {
+            throw new BadRequestResponse();
+        }
+        Log log = LogHandler.getInstance().getLog(Integer.parseInt(id));
+        if (log == null) {
+            throw new NotFoundResponse();
+        }
+        return log;
+    }
+
+    /**
+     * Gets an optional date query parameter, given as Epoch Time (UTC).
+     *
+     * @param ctx  {@link Context}
+     * @param name The name of the parameter.
+     * @return {@link LocalDateTime} if set, null otherwise.
+     */
+    private static LocalDateTime getDateParam(Context ctx, String name) {
+        Long epoch = ctx.queryParamAsClass(name, Long.class).allowNullable().get();
+        return epoch == null ? null : Instant.ofEpochSecond(epoch).atOffset(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    /**
+     * Gets the open session referenced by the 'log' path parameter.
+     *
+     * @param ctx {@link Context}
+     * @return {@link LogSession}
+     */
+    private static LogSession getSession(Context ctx) {
+        String id = ctx.pathParam("log");
+        if (!Util.isInteger(id)) {
+            throw new BadRequestResponse();
+        }
+        LogSession session = LogHandler.getInstance().getSession(Integer.parseInt(id));
+        if (session == null) {
+            throw new NotFoundResponse("No open session could be found for the specified id.");
+        }
+        return session;
+    }
+
+    /**
+     * Gets the pending upload referenced by the 'upload' path parameter.
+     *
+     * @param ctx {@link Context}
+     * @return {@link UploadHandler.Upload}
+     */
+    private static UploadHandler.Upload getUpload(Context ctx) {
+        UploadHandler.Upload upload = UploadHandler.getInstance().getUpload(ctx.pathParam("upload"));
+        if (upload == null) {
+            throw new NotFoundResponse("No pending upload could be found for the specified id.");
+        }
+        return upload;
+    }
+
+    /**
+     * Serves a file from a log directory.
+     * Plain-text statistics which were removed by earlier versions are regenerated from the binary format on the fly.
+     *
+     * @param ctx {@link Context}
+     */
+    private static void serveLogFile(Context ctx) throws IOException {
+        String id = ctx.pathParam("log");
+        if (!Util.isInteger(id)) {
+            throw new NotFoundResponse();
+        }
+        int logId = Integer.parseInt(id);
+        String name = ctx.pathParam("file");
+        File directory = LogHandler.getInstance().getLogDirectory(logId);
+        if (name.equals(logId + ".xlsx")) {
+            Log log = LogHandler.getInstance().getLog(logId);
+            if (log == null) {
+                throw new NotFoundResponse();
+            }
+            serveSheet(ctx, log);
+            return;
+        }
+        File file = new File(directory, name);
+        if (name.equals(logId + ".zip") && (!ArchiveHandler.getInstance().isMaterialize() || !file.isFile())) {
+            Log log = LogHandler.getInstance().getLog(logId);
+            if (log == null) {
+                throw new NotFoundResponse();
+            }
+            ctx.contentType("application/zip");
+            ArchiveHandler.getInstance().write(log, ctx.outputStream());
+            return;
+        }
+        if (file.isFile() && directory.equals(file.getParentFile())) {
+            String contentType = MimeTypes.getDefaultMimeByExtension(name);
+            serveFile(ctx, file, contentType == null ? "application/octet-stream" : contentType);
+            return;
+        }
+        File binary = new File(directory, logId + StatisticsBinaryFormat.EXTENSION);
+        if (!binary.exists()) {
+            throw new NotFoundResponse();
+        }
+        if (name.equals(logId + ".stats")) {
+            ctx.contentType("text/plain");
+            StatisticsBinaryFormat.toText(binary, ctx.outputStream());
+        } else if (name.equals(logId + ".map.stats")) {
+            try (
+                    StatisticsBinaryFormat.Reader reader = new StatisticsBinaryFormat.Reader(binary);
+            ) {
+                ctx.json(Constants.GSON.toJson(reader.getStatisticsMap()));
+            }
+        } else {
+            throw new NotFoundResponse();
+        }
+    }
+
+    /**
+     * Serves a file, honouring a single byte range from the Range header.
+     * Ranges are copied straight from the file channel to the response.
+     *
+     * @param ctx         {@link Context}
+     * @param file        The file.
+     * @param contentType The content type of the file.
+     */
+    private static void serveFile(Context ctx, File file, String contentType) throws IOException {
+        ctx.header("Accept-Ranges", "bytes");
+        ctx.contentType(contentType);
+        String range = ctx.header("Range");
+        long size = file.length();
+        // Invalid ranges, other units and multiple ranges are ignored, and the whole file is served
+        Matcher matcher = range == null || !range.regionMatches(true, 0, "bytes=", 0, 6) ? null : BYTE_RANGE.matcher(range.substring(6).trim());
+        if (matcher == null || !matcher.matches() || matcher.group(1).isEmpty() && matcher.group(2).isEmpty()) {
+            ctx.result(new FileInputStream(file));
+            return;
+        }
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        long start;
+        long end;
+        try {
+            if (first.isEmpty()) {
+                // Suffix range of the last bytes
+                start = Math.max(0, size - Long.parseLong(last));
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (end < start) {
+                    throw new NumberFormatException();
+                }
+                end = Math.min(size - 1, end);
+            }
+        } catch (NumberFormatException e) {
+            ctx.result(new FileInputStream(file));
+            return;
+        }
+        if (start > end || start >= size) {
+            ctx.header("Content-Range", "bytes */" + size);
+            throw new HttpResponseException(416, "The requested range cannot be satisfied.", Collections.emptyMap());
+        }
+        long length = end - start + 1;
+        ctx.status(206);
+        ctx.header("Content-Range", "bytes " + start + "-" + end + "/" + size);
+        ctx.res.setContentLengthLong(length);
+        try (
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ) {
+            WritableByteChannel out = Channels.newChannel(ctx.res.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end + 1 - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Serves the statistics sheet of a log, rendering it first if it is not cached.
+     *
+     * @param ctx {@link Context}
+     * @param log {@link Log}
+     */
+    private static void serveSheet(Context ctx, Log log) {
+        ctx.future(SheetCache.getInstance().acquireSheet(log).thenApply(sheet -> {
+            if (sheet == null) {
+                throw new NotFoundResponse("No statistics have been processed for this log.");
+            }
+            ctx.contentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            // An open sheet can still be read after it is evicted, so it only has to be pinned until it is opened
+            try {
+                return new FileInputStream(sheet);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                SheetCache.getInstance().release(log.getId());
+            }
+        }));
+    }
+
     public static void main(String[] args) {
         Cabinet.getInstance().start();
     }
@@ -20,8 +20,11 @@
 
 package edu.iit.fsae.cabinet;
 
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import edu.iit.fsae.cabinet.entities.Detail;
 import edu.iit.fsae.cabinet.util.LocalDateTimeSerializer;
 import lombok.experimental.UtilityClass;
 
@@ -34,11 +37,28 @@ import java.time.LocalDateTime;
 public class Constants {
     public static final Gson GSON;
     public static final Gson EXPOSED_GSON;
+    public static final Gson COMPACT_GSON;
+    /**
+     * Compact, and leaves out fields marked with {@link Detail}.
+     */
+    public static final Gson LISTING_GSON;
 
     public static final String API_V1_PATH = "/api/v1";
 
     static {
         GSON = new GsonBuilder().setPrettyPrinting().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeSerializer()).create();
+        COMPACT_GSON = new GsonBuilder().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeSerializer()).create();
+        LISTING_GSON = new GsonBuilder().setExclusionStrategies(new ExclusionStrategy() {
+            @Override
+            public boolean shouldSkipField(FieldAttributes f) {
+                return f.getAnnotation(Detail.class) != null;
+            }
+
+            @Override
+            public boolean shouldSkipClass(Class<?> clazz) {
+                return false;
+            }
+        }).registerTypeAdapter(LocalDateTime.class, new LocalDateTimeSerializer()).create();
         EXPOSED_GSON = new GsonBuilder().setPrettyPrinting().excludeFieldsWithoutExposeAnnotation().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeSerializer()).create();
     }
 }
@@ -0,0 +1,280 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import edu.iit.fsae.cabinet.entities.Log;
+import edu.iit.fsae.cabinet.util.VirtualThreads;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A staged pipeline which processes logs once they have been received.
+ * <p>
+ * Every log passes through a persist stage, followed by the stages the pipeline was created with. Each stage has its
+ * own workers and a bounded queue, with separate capacities for live work, such as new uploads, and backlog work, such
+ * as logs reprocessed on startup. Live work is always taken first. New live work has to reserve a slot in the first
+ * stage before it is accepted, and is rejected once that stage is full. Backlog work waits for a free slot instead,
+ * and work moving between stages waits for the next stage, so a slow stage holds back the stages before it. A log
+ * which fails a stage does not move on to the following stages.
+ * <p>
+ * When virtual threads are enabled, stages which mostly block on I/O, such as the persist stage, run on virtual
+ * threads, with enough of them to work on every queued log at once.
+ *
+ * @author Noah Husby
+ */
+@Slf4j
+public class IngestPipeline {
+
+    /**
+     * The amount of seconds a client should wait before retrying rejected work.
+     */
+    public static final int RETRY_AFTER_SECONDS = 10;
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final BlockingQueue<Log> backlog = new LinkedBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong(0);
+    private final Thread backlogThread;
+
+    /**
+     * @param liveCapacity    The amount of live work each stage can hold.
+     * @param backlogCapacity The amount of backlog work each stage can hold.
+     * @param stages          The stages which follow the persist stage, in order.
+     */
+    public IngestPipeline(int liveCapacity, int backlogCapacity, List<StageDefinition> stages) {
+        this.stages.add(new Stage("persist", 2, true, liveCapacity, backlogCapacity, null));
+        for (StageDefinition definition : stages) {
+            this.stages.add(new Stage(definition.getName(), definition.getThreads(), definition.isBlocking(), liveCapacity, backlogCapacity, definition.getAction()));
+        }
+        backlogThread = new Thread(this::feedBacklog, "ingest-backlog");
+        backlogThread.setDaemon(true);
+        backlogThread.start();
+    }
+
+    /**
+     * Reserves a slot for live work in the first stage.
+     *
+     * @return {@link Reservation}
+     * @throws SaturatedException If the first stage is full.
+     */
+    public Reservation reserve() {
+        if (!stages.get(0).live.tryAcquire()) {
+            throw new SaturatedException();
+        }
+        return new Reservation();
+    }
+
+    /**
+     * Adds a log which has already been persisted to the backlog. It enters the pipeline after the persist stage.
+     *
+     * @param log {@link Log}
+     */
+    public void submitBacklog(Log log) {
+        backlog.add(log);
+    }
+
+    /**
+     * Stops accepting work, and stops every stage once its queued work is done.
+     */
+    public void shutdown() {
+        backlogThread.interrupt();
+        stages.forEach(stage -> stage.executor.shutdown());
+    }
+
+    private void feedBacklog() {
+        Stage first = stages.get(1);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Log log = backlog.take();
+                first.backlog.acquire();
+                first.executor.execute(new Job(log, false, 1, null));
+            }
+        } catch (InterruptedException ignored) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * A reserved slot for live work in the first stage, which is either submitted or cancelled.
+     */
+    public class Reservation {
+        private final AtomicBoolean used = new AtomicBoolean(false);
+
+        private Reservation() {
+        }
+
+        /**
+         * Submits a log to the pipeline.
+         *
+         * @param log     {@link Log}
+         * @param persist Persists the files and metadata of the log, before the following stages run.
+         */
+        public void submit(Log log, Runnable persist) {
+            if (!used.compareAndSet(false, true)) {
+                throw new IllegalStateException("The reservation has already been used.");
+            }
+            stages.get(0).executor.execute(new Job(log, true, 0, persist));
+        }
+
+        /**
+         * Releases the slot if it has not been used.
+         */
+        public void cancel() {
+            if (used.compareAndSet(false, true)) {
+                stages.get(0).live.release();
+            }
+        }
+    }
+
+    /**
+     * A stage which follows the persist stage.
+     */
+    @Getter
+    public static class StageDefinition {
+        private final String name;
+        private final int threads;
+        private final boolean blocking;
+        private final Consumer<Log> action;
+
+        /**
+         * @param name     The name of the stage.
+         * @param threads  The amount of platform workers.
+         * @param blocking Whether the stage mostly blocks on I/O, and can run on virtual threads.
+         * @param action   The work done on each log.
+         */
+        public StageDefinition(String name, int threads, boolean blocking, Consumer<Log> action) {
+            this.name = name;
+            this.threads = threads;
+            this.blocking = blocking;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Thrown when live work is rejected because the pipeline is full.
+     */
+    public static class SaturatedException extends RuntimeException {
+        public SaturatedException() {
+            super("The server is busy processing logs. Try again later.");
+        }
+    }
+
+    private static class Stage {
+        private final String name;
+        private final Consumer<Log> action;
+        private final Semaphore live;
+        private final Semaphore backlog;
+        private final ThreadPoolExecutor executor;
+
+        private Stage(String name, int threads, boolean blocking, int liveCapacity, int backlogCapacity, Consumer<Log> action) {
+            this.name = name;
+            this.action = action;
+            this.live = new Semaphore(liveCapacity);
+            this.backlog = new Semaphore(backlogCapacity);
+            ThreadFactory factory;
+            if (blocking && VirtualThreads.isEnabled()) {
+                threads = liveCapacity + backlogCapacity;
+                factory = VirtualThreads.factory("ingest-" + name + "-");
+            } else {
+                AtomicInteger count = new AtomicInteger(0);
+                factory = r -> {
+                    Thread thread = new Thread(r, "ingest-" + name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+            }
+            // The queue is bounded by the semaphores, and orders live work before backlog work
+            executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), factory);
+            executor.prestartAllCoreThreads();
+        }
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        private final Log log;
+        private final boolean live;
+        private final long order = sequence.getAndIncrement();
+        private final Runnable persist;
+        private int stage;
+
+        private Job(Log log, boolean live, int stage, Runnable persist) {
+            this.log = log;
+            this.live = live;
+            this.stage = stage;
+            this.persist = persist;
+        }
+
+        @Override
+        public void run() {
+            Stage current = stages.get(stage);
+            (live ? current.live : current.backlog).release();
+            try {
+                if (current.action == null) {
+                    persist.run();
+                } else {
+                    current.action.accept(log);
+                }
+            } catch (RuntimeException e) {
+                // Later stages depend on this one, such as a log which was never persisted or registered
+                IngestPipeline.log.error("Failed to {} log: {}", current.name, log.getId(), e);
+                return;
+            }
+            if (++stage >= stages.size()) {
+                return;
+            }
+            Stage next = stages.get(stage);
+            Semaphore slots = live ? next.live : next.backlog;
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                next.executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // The pipeline is shutting down, the log is processed again on the next start
+                slots.release();
+            }
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (live != other.live) {
+                return live ? -1 : 1;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+}
@@ -20,27 +20,66 @@
 
 package edu.iit.fsae.cabinet;
 
-import com.google.gson.JsonArray;
+import com.google.gson.JsonParseException;
+import edu.iit.fsae.cabinet.entities.AggregatePoint;
+import edu.iit.fsae.cabinet.entities.Catalog;
+import edu.iit.fsae.cabinet.entities.ChannelSummary;
 import edu.iit.fsae.cabinet.entities.Log;
+import edu.iit.fsae.cabinet.util.LineIndex;
+import edu.iit.fsae.cabinet.util.MultipartStreamReader;
+import edu.iit.fsae.cabinet.util.StatisticsBinaryFormat;
+import edu.iit.fsae.cabinet.util.StatisticsPyramid;
 import edu.iit.fsae.cabinet.util.StatisticsSheetWriter;
 import edu.iit.fsae.cabinet.util.Util;
-import io.javalin.core.util.FileUtil;
 import io.javalin.http.UploadedFile;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Objects;
-import java.util.TreeMap;
-import java.util.concurrent.ExecutorService;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * A handler for creating, storing, and fetching log files.
@@ -52,88 +91,326 @@ public class LogHandler {
     @Getter
     private static final LogHandler instance = new LogHandler();
 
-    private final Map<Integer, Log> logs = new TreeMap<>();
-    private final ExecutorService logWorkerThreads;
+    private final ConcurrentNavigableMap<Integer, Log> logs = new ConcurrentSkipListMap<>(Collections.reverseOrder());
+    private final ConcurrentNavigableMap<LocalDateTime, Set<Integer>> dateIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<LocalDateTime, Set<Integer>> uploadDateIndex = new ConcurrentSkipListMap<>();
+    private final AtomicInteger idSequence = new AtomicInteger(0);
+    private final Map<Integer, LogSession> sessions = new ConcurrentHashMap<>();
+    private final IngestPipeline pipeline;
+
+    private static final int DEFAULT_LIVE_CAPACITY = 16;
+    private static final int BACKLOG_CAPACITY = 32;
+
+    private static final long CATALOG_SAVE_DELAY = 1000;
+    private final Set<Integer> processed = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> ignored = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService catalogThread = Executors.newSingleThreadScheduledExecutor();
+    private final ForkJoinPool analyticsPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final AtomicBoolean catalogSaveScheduled = new AtomicBoolean(false);
+    private final AtomicLong listingVersion = new AtomicLong(0);
+    private volatile Listing listing;
 
     protected LogHandler() {
-        logWorkerThreads = Executors.newFixedThreadPool(8);
-        Runtime.getRuntime().addShutdownHook(new Thread(logWorkerThreads::shutdown));
+        String liveCapacity = System.getenv("CABINET_INGEST_QUEUE_SIZE");
+        pipeline = new IngestPipeline(liveCapacity == null ? DEFAULT_LIVE_CAPACITY : Integer.parseInt(liveCapacity), BACKLOG_CAPACITY, Arrays.asList(
+                new IngestPipeline.StageDefinition("index", 2, false, this::handleLogIndexes),
+                new IngestPipeline.StageDefinition("statistics", 2, false, this::handleLogStatistics),
+                new IngestPipeline.StageDefinition("sheet", 2, false, this::handleLogSheet),
+                new IngestPipeline.StageDefinition("archive", 2, true, this::handleLogArchive)
+        ));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            pipeline.shutdown();
+            catalogThread.shutdown();
+            analyticsPool.shutdown();
+            saveCatalog();
+        }));
     }
 
     /**
      * Gets logs reverse sorted by id.
+     * The returned map is a read-only view, which is weakly consistent while logs are being added.
      *
      * @return Map of Integer, Log.
      */
     public Map<Integer, Log> getSortedLogs() {
-        Map<Integer, Log> temp = new TreeMap<>(Collections.reverseOrder());
-        temp.putAll(logs);
-        return temp;
+        return Collections.unmodifiableMap(logs);
     }
 
     /**
-     * Gets logs reverse sorted by id as a JsonArray.
-     *
-     * @return {@link JsonArray} of sorted logs.
+     * Loads logs from set working directory.
+     * The catalog snapshot is used when it is up-to-date, otherwise every manifest is read in parallel.
      */
-    public JsonArray getSortedLogsAsJson() {
-        JsonArray array = new JsonArray();
-        getSortedLogs().values().forEach(log -> array.add(Constants.GSON.toJsonTree(log)));
-        return array;
+    public void load() {
+        log.info("Loading logs...");
+        long start = System.currentTimeMillis();
+        List<File> directories = getLogDirectories();
+        Catalog catalog = readCatalog(directories);
+        if (catalog != null) {
+            processed.addAll(catalog.getProcessed());
+            ignored.addAll(catalog.getIgnored());
+            for (Log log : catalog.getLogs()) {
+                registerLoadedLog(log, !processed.contains(log.getId()) || isMissingDerivedStatistics(log));
+            }
+            loadIdSequence();
+            log.info("Loaded {} logs from catalog in {} ms", logs.size(), (System.currentTimeMillis() - start));
+            return;
+        }
+        List<Log> loaded = directories.parallelStream()
+                .map(directory -> {
+                    Log log = readManifest(directory);
+                    if (log == null) {
+                        ignored.add(Integer.parseInt(directory.getName()));
+                    }
+                    return log;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        for (Log log : loaded) {
+            // Temporary size whilst statistics are being handled
+            log.setSize(Util.humanReadableBytes(0));
+            registerLoadedLog(log, true);
+        }
+        loadIdSequence();
+        onCatalogChanged();
+        log.info("Loaded {} logs in {} ms", logs.size(), (System.currentTimeMillis() - start));
     }
 
     /**
-     * Loads logs from set working directory.
+     * Lists the directory of every log, skipping unknown files and folders.
+     *
+     * @return The log directories.
      */
-    public void load() {
-        log.info("Loading logs...");
+    private List<File> getLogDirectories() {
         File logDir = Cabinet.getInstance().getFolder();
+        List<File> directories = new ArrayList<>();
         for (File file : Objects.requireNonNull(logDir.listFiles())) {
             if (file.isFile()) {
                 log.warn("Unknown file in log directory: {}", file.getName());
-            } else {
-                String directoryName = file.getName();
-                if (!Util.isInteger(directoryName)) {
+            } else if (!file.getName().equals(UploadHandler.STAGING_DIRECTORY)) {
+                if (!Util.isInteger(file.getName())) {
                     log.warn("Non-indexed folder in directory: {}", file.getName());
                     continue;
                 }
-                File manifest = new File(file, "manifest.json");
-                if (!manifest.exists()) {
-                    log.warn("No manifest for log in directory: {}", file.getName());
-                    continue;
+                directories.add(file);
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Posts a new log from a multipart request body.
+     * Each part is streamed straight into the log directory while the request is read.
+     *
+     * @param date     Date of log creation.
+     * @param body     The multipart request body.
+     * @param boundary The multipart boundary.
+     * @param maxSize  The maximum size of the request body.
+     * @return A new {@link Log} representation of the upload.
+     * @throws IllegalArgumentException          If the body is malformed or is missing files.
+     * @throws IngestPipeline.SaturatedException If the pipeline cannot accept another log.
+     */
+    public Log postNewLog(LocalDateTime date, InputStream body, String boundary, long maxSize) throws IOException {
+        // Reserve a slot before the body is read, so a busy server rejects the upload up front
+        IngestPipeline.Reservation reservation = pipeline.reserve();
+        Log log;
+        try {
+            log = new Log(nextId(), date, LocalDateTime.now());
+        } catch (IOException e) {
+            reservation.cancel();
+            throw e;
+        }
+        File parent = getLogDirectory(log.getId());
+        File logFile = new File(parent, log.getId() + ".txt");
+        File statsFile = new File(parent, log.getId() + ".stats");
+        File statsMapFile = new File(parent, log.getId() + ".map.stats");
+        try {
+            new MultipartStreamReader(body, boundary, maxSize).read((name, fileName) -> {
+                switch (name) {
+                    case "log":
+                        return logFile;
+                    case "stats":
+                        return statsFile;
+                    case "stats_map":
+                        return statsMapFile;
+                    default:
+                        return null;
                 }
-                loadLogFromManifest(file, manifest);
+            });
+            if (!logFile.exists()) {
+                throw new IllegalArgumentException("The 'log' file has not been attached.");
+            }
+            if (statsFile.exists() && !statsMapFile.exists()) {
+                throw new IllegalArgumentException("The 'stats' file was attached, but the 'stats_map' file is missing.");
             }
+        } catch (IOException | RuntimeException e) {
+            reservation.cancel();
+            deleteDirectory(parent);
+            throw e;
         }
-        log.info("Loaded {} logs", logs.size());
+        // Temporary size while sheet is generated
+        log.setSize(Util.humanReadableBytes(logFile.length()));
+        return postNewLog(reservation, log, statsFile.exists(), l -> {});
     }
 
     /**
-     * Posts a new log
+     * Posts a new log from files which have already been assembled on disk.
+     * The files are moved into the log directory.
      *
+     * @param reservation  {@link IngestPipeline.Reservation} from {@link #reserve()}.
      * @param date         Date of log creation.
-     * @param logFile      {@link UploadedFile} representing the plain-text log file.
-     * @param statsFile    {@link UploadedFile} representing the binary statistics file.
-     * @param statsMapFile {@link UploadedFile} representing the json statistics mapping file.
+     * @param logFile      The plain-text log file.
+     * @param statsFile    The statistics file, or null.
+     * @param statsMapFile The json statistics mapping file, or null.
      * @return A new {@link Log} representation of the upload.
      */
-    public Log postNewLog(LocalDateTime date, UploadedFile logFile, UploadedFile statsFile, UploadedFile statsMapFile) {
-        int i = logs.size();
-        while (logs.containsKey(i)) {
-            i++;
+    public Log postNewLog(IngestPipeline.Reservation reservation, LocalDateTime date, File logFile, File statsFile, File statsMapFile) throws IOException {
+        Log log;
+        try {
+            log = new Log(nextId(), date, LocalDateTime.now());
+        } catch (IOException e) {
+            reservation.cancel();
+            throw e;
         }
-        Log log = new Log(i, date, LocalDateTime.now());
-        LogHandler.log.info("Uploaded new log: {} (w/ {})", log.getId(), "log" + (statsFile != null ? " & stats" : ""));
-        logWorkerThreads.submit(() -> {
+        return postNewLog(reservation, log, statsFile != null, l -> moveLogFiles(l, logFile, statsFile, statsMapFile));
+    }
+
+    private Log postNewLog(IngestPipeline.Reservation reservation, Log log, boolean hasStats, Consumer<Log> fileSaver) {
+        LogHandler.log.info("Uploaded new log: {} (w/ {})", log.getId(), "log" + (hasStats ? " & stats" : ""));
+        reservation.submit(log, () -> {
             saveLogToManifest(log);
-            saveLogFiles(log, logFile, statsFile, statsMapFile);
-            logs.put(log.getId(), log);
-            handleLogStatistics(log);
-            handleLogArchive(log);
+            fileSaver.accept(log);
+            register(log);
+            onCatalogChanged();
         });
         return log;
     }
 
+    /**
+     * Reserves a slot in the ingest pipeline for a new log.
+     *
+     * @return {@link IngestPipeline.Reservation}, which has to be used or cancelled.
+     * @throws IngestPipeline.SaturatedException If the pipeline cannot accept another log.
+     */
+    public IngestPipeline.Reservation reserve() {
+        return pipeline.reserve();
+    }
+
+    /**
+     * Opens a new session, which receives its log and statistics in appended chunks.
+     *
+     * @param date         Date of log creation.
+     * @param statsMapFile {@link UploadedFile} representing the json statistics mapping file, or null if it will be set later.
+     * @return A new {@link LogSession}.
+     */
+    public LogSession openSession(LocalDateTime date, UploadedFile statsMapFile) throws IOException {
+        Log log = new Log(nextId(), date, LocalDateTime.now());
+        log.setLive(true);
+        saveLogToManifest(log);
+        LogSession session = new LogSession(log, getLogDirectory(log.getId()));
+        if (statsMapFile != null) {
+            session.setStatsMap(statsMapFile.getContent());
+        }
+        sessions.put(log.getId(), session);
+        register(log);
+        onCatalogChanged();
+        LogHandler.log.info("Opened new session: {}", log.getId());
+        return session;
+    }
+
+    /**
+     * Closes a session, generating its statistics sheet and archive.
+     *
+     * @param session {@link LogSession}
+     * @throws IngestPipeline.SaturatedException If the pipeline cannot accept another log, in which case the session stays open.
+     */
+    public void closeSession(LogSession session) {
+        Log log = session.getLogMetadata();
+        IngestPipeline.Reservation reservation = pipeline.reserve();
+        // Wait for any in-flight appends to finish
+        synchronized (session) {
+            if (sessions.remove(log.getId()) == null) {
+                reservation.cancel();
+                return;
+            }
+            log.setLive(false);
+            onCatalogChanged();
+        }
+        LogHandler.log.info("Closed session: {}", log.getId());
+        reservation.submit(log, () -> saveLogToManifest(log));
+    }
+
+    /**
+     * Gets an open {@link LogSession} by its log id.
+     *
+     * @param id Id of log.
+     * @return {@link LogSession} if open, null otherwise.
+     */
+    public LogSession getSession(int id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Allocates the next log id, reserving it by creating its directory.
+     *
+     * @return Log id.
+     * @throws IOException If the directory could not be created for any reason other than already existing.
+     */
+    private int nextId() throws IOException {
+        while (true) {
+            int id = idSequence.getAndIncrement();
+            try {
+                Files.createDirectory(getLogDirectory(id).toPath());
+            } catch (FileAlreadyExistsException e) {
+                // Taken by a directory the sequence does not account for, such as one copied in by hand
+                continue;
+            }
+            saveIdSequence();
+            return id;
+        }
+    }
+
+    /**
+     * Loads the id sequence, making sure it is past every loaded log.
+     */
+    private void loadIdSequence() {
+        int next = logs.isEmpty() ? 0 : logs.firstKey() + 1;
+        File sequenceFile = getIdSequenceFile();
+        if (sequenceFile.exists()) {
+            try {
+                String persisted = Files.readString(sequenceFile.toPath()).trim();
+                if (Util.isInteger(persisted)) {
+                    next = Math.max(next, Integer.parseInt(persisted));
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read log id sequence.", e);
+            }
+        }
+        idSequence.set(next);
+    }
+
+    /**
+     * Persists the id sequence, so ids are never reused after a restart.
+     */
+    private synchronized void saveIdSequence() {
+        File sequenceFile = getIdSequenceFile();
+        File temp = new File(sequenceFile.getParentFile(), sequenceFile.getName() + ".tmp");
+        try {
+            Files.writeString(temp.toPath(), String.valueOf(idSequence.get()));
+            Files.move(temp.toPath(), sequenceFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to save log id sequence.", e);
+        }
+    }
+
+    /**
+     * Gets the id sequence file, which lives beside the log directory.
+     *
+     * @return The id sequence file.
+     */
+    private File getIdSequenceFile() {
+        return new File(Cabinet.getInstance().getFolder().getAbsoluteFile().getParentFile(), "next_id");
+    }
+
     /**
      * Saves a log to a manifest file.
      *
@@ -153,98 +430,472 @@ public class LogHandler {
     }
 
     /**
-     * Saves uploaded files to log directory.
+     * Deletes a log directory and its contents.
      *
-     * @param log               {@link Log}
-     * @param uploadedLogFile   {@link UploadedFile}
-     * @param uploadedStatsFile {@link UploadedFile}
+     * @param directory The log directory.
      */
-    private void saveLogFiles(Log log, UploadedFile uploadedLogFile, UploadedFile uploadedStatsFile, UploadedFile uploadStatsMapFile) {
-        File parent = new File(Cabinet.getInstance().getFolder(), String.valueOf(log.getId()));
-        File logFile = new File(parent, log.getId() + ".txt");
-        FileUtil.streamToFile(uploadedLogFile.getContent(), logFile.getAbsolutePath());
-        // Temporary size while sheet is generated
-        log.setSize(Util.humanReadableBytes(logFile.length()));
-        if (uploadedStatsFile != null) {
-            File statsFile = new File(parent, log.getId() + ".stats");
-            File statsMapFile = new File(parent, log.getId() + ".map.stats");
-            FileUtil.streamToFile(uploadedStatsFile.getContent(), statsFile.getAbsolutePath());
-            FileUtil.streamToFile(uploadStatsMapFile.getContent(), statsMapFile.getAbsolutePath());
+    private void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
         }
+        directory.delete();
     }
 
     /**
-     * Loads a log file from its manifest file.
+     * Moves assembled files to log directory.
      *
-     * @param parent       The parent folder of the log.
-     * @param manifestFile The manifest file of the log.
+     * @param log          {@link Log}
+     * @param logFile      The plain-text log file.
+     * @param statsFile    The statistics file, or null.
+     * @param statsMapFile The json statistics mapping file, or null.
+     * @throws UncheckedIOException If the files could not be moved, which stops the log from being registered.
      */
-    private void loadLogFromManifest(File parent, File manifestFile) {
-        Log log;
+    private void moveLogFiles(Log log, File logFile, File statsFile, File statsMapFile) {
+        File parent = getLogDirectory(log.getId());
         try {
-            log = Constants.GSON.fromJson(new FileReader(manifestFile), Log.class);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return;
+            Files.move(logFile.toPath(), new File(parent, log.getId() + ".txt").toPath(), StandardCopyOption.ATOMIC_MOVE);
+            log.setSize(Util.humanReadableBytes(new File(parent, log.getId() + ".txt").length()));
+            if (statsFile != null) {
+                Files.move(statsFile.toPath(), new File(parent, log.getId() + ".stats").toPath(), StandardCopyOption.ATOMIC_MOVE);
+                Files.move(statsMapFile.toPath(), new File(parent, log.getId() + ".map.stats").toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to move files for log: " + log.getId(), e);
+        }
+        // Remove the staging directory if nothing else is left in it, otherwise it is removed once it expires
+        if (!logFile.getParentFile().delete()) {
+            LogHandler.log.debug("Staging directory of log {} is not empty, leaving it in place.", log.getId());
+        }
+    }
+
+    /**
+     * Reads a log from its manifest file.
+     *
+     * @param parent The parent folder of the log.
+     * @return {@link Log} if the manifest could be read and the log file exists, null otherwise.
+     */
+    private Log readManifest(File parent) {
+        File manifestFile = new File(parent, "manifest.json");
+        if (!manifestFile.exists()) {
+            LogHandler.log.warn("No manifest for log in directory: {}", parent.getName());
+            return null;
+        }
+        Log log;
+        try (
+                FileReader reader = new FileReader(manifestFile);
+        ) {
+            log = Constants.GSON.fromJson(reader, Log.class);
+        } catch (IOException | JsonParseException e) {
+            LogHandler.log.error("Failed to read manifest for log: {}", parent.getName(), e);
+            return null;
         }
         if (!Util.doesChildFileExist(parent, log.getId() + ".txt")) {
             LogHandler.log.warn("Log file missing. Not loading log: {}", parent.getName());
+            return null;
+        }
+        return log;
+    }
+
+    /**
+     * Registers a loaded log, resuming its session if it is live.
+     *
+     * @param log     {@link Log}
+     * @param process Whether the statistics and archive of the log still need to be handled.
+     */
+    private void registerLoadedLog(Log log, boolean process) {
+        if (log.isLive()) {
+            try {
+                sessions.put(log.getId(), new LogSession(log, getLogDirectory(log.getId())));
+                register(log);
+            } catch (IOException e) {
+                LogHandler.log.error("Failed to resume session: {}", log.getId(), e);
+            }
             return;
         }
-        logWorkerThreads.submit(() -> {
-            // Temporary size whilst statistics are being handled
-            log.setSize(Util.humanReadableBytes(0));
-            handleLogStatistics(log);
-            handleLogArchive(log);
-        });
-        logs.put(log.getId(), log);
+        register(log);
+        if (SheetCache.getInstance().isLazy()) {
+            // Sheets rendered before a restart count towards the cache size, even for logs which skip the pipeline
+            SheetCache.getInstance().record(log.getId());
+        }
+        if (process) {
+            pipeline.submitBacklog(log);
+        }
     }
 
     /**
-     * Handles the checking and creation of the statistics file.
+     * Checks whether a log has statistics which were processed before summaries or pyramids were built.
+     *
+     * @param log {@link Log}
+     * @return True if the log has binary statistics but no summaries or pyramid.
+     */
+    private boolean isMissingDerivedStatistics(Log log) {
+        File binary = new File(getLogDirectory(log.getId()), log.getId() + StatisticsBinaryFormat.EXTENSION);
+        if (log.isLive() || !binary.exists()) {
+            return false;
+        }
+        return log.getSummaries() == null || !StatisticsPyramid.getFile(binary).exists();
+    }
+
+    /**
+     * Handles the line index and search index of a log.
+     *
+     * @param log {@link Log}
+     */
+    private void handleLogIndexes(Log log) {
+        try {
+            getLineIndex(log);
+        } catch (IOException e) {
+            LogHandler.log.error("Failed to build line index for log: {}", log.getId(), e);
+        }
+        SearchIndex.getInstance().index(log);
+    }
+
+    /**
+     * Reads the catalog snapshot.
+     * The catalog is only up-to-date when it accounts for exactly the log directories on disk. A log directory is
+     * created before its log is registered, so a snapshot taken in between does not include it.
+     *
+     * @param directories The log directories on disk.
+     * @return {@link Catalog} if it exists and is up-to-date with the log directory, null otherwise.
+     */
+    private Catalog readCatalog(List<File> directories) {
+        File catalogFile = getCatalogFile();
+        if (!catalogFile.exists()) {
+            return null;
+        }
+        Catalog catalog;
+        try (
+                Reader reader = new BufferedReader(new FileReader(catalogFile), 1 << 16);
+        ) {
+            catalog = Constants.GSON.fromJson(reader, Catalog.class);
+        } catch (IOException | JsonParseException e) {
+            log.warn("Failed to read log catalog.", e);
+            return null;
+        }
+        if (catalog == null) {
+            return null;
+        }
+        Set<Integer> known = new HashSet<>(catalog.getIgnored());
+        for (Log log : catalog.getLogs()) {
+            known.add(log.getId());
+        }
+        Set<Integer> onDisk = new HashSet<>();
+        for (File directory : directories) {
+            onDisk.add(Integer.parseInt(directory.getName()));
+        }
+        if (!known.equals(onDisk)) {
+            log.info("Log catalog is stale.");
+            return null;
+        }
+        return catalog;
+    }
+
+    /**
+     * Gets the cached listing of every log, which is only re-serialized after the logs have changed.
+     *
+     * @return {@link Listing}
+     */
+    public Listing getListing() throws IOException {
+        Listing current = listing;
+        long version = listingVersion.get();
+        if (current != null && current.version == version) {
+            return current;
+        }
+        synchronized (listingVersion) {
+            current = listing;
+            if (current != null && current.version == version) {
+                return current;
+            }
+            listing = current = new Listing(version, Constants.LISTING_GSON.toJson(logs.values()).getBytes(StandardCharsets.UTF_8));
+            return current;
+        }
+    }
+
+    /**
+     * Marks the listing of logs as changed, without saving the catalog.
+     * Used for frequent changes, such as the size of a live log.
+     */
+    public void invalidateListing() {
+        listingVersion.incrementAndGet();
+    }
+
+    /**
+     * Marks the logs as changed, invalidating the listing and scheduling the catalog to be saved.
+     */
+    private void onCatalogChanged() {
+        invalidateListing();
+        scheduleCatalogSave();
+    }
+
+    /**
+     * Schedules the catalog snapshot to be saved, coalescing changes made in quick succession.
+     */
+    private void scheduleCatalogSave() {
+        if (catalogSaveScheduled.compareAndSet(false, true)) {
+            catalogThread.schedule(() -> {
+                catalogSaveScheduled.set(false);
+                saveCatalog();
+            }, CATALOG_SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves a snapshot of every log to the catalog file.
+     * The snapshot is written to a temporary file first, and then atomically moved in place.
+     */
+    private synchronized void saveCatalog() {
+        Catalog catalog = new Catalog();
+        catalog.getLogs().addAll(getSortedLogs().values());
+        catalog.getIgnored().addAll(ignored);
+        catalog.getProcessed().addAll(processed);
+        File catalogFile = getCatalogFile();
+        File temp = new File(catalogFile.getParentFile(), catalogFile.getName() + ".tmp");
+        try (
+                Writer writer = new BufferedWriter(new FileWriter(temp), 1 << 16);
+        ) {
+            Constants.COMPACT_GSON.toJson(catalog, writer);
+        } catch (IOException e) {
+            log.error("Failed to write log catalog.", e);
+            return;
+        }
+        try {
+            Files.move(temp.toPath(), catalogFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to replace log catalog.", e);
+        }
+    }
+
+    /**
+     * Gets the catalog file, which lives beside the log directory so it is not mistaken for a log.
+     *
+     * @return The catalog file.
+     */
+    private File getCatalogFile() {
+        return new File(Cabinet.getInstance().getFolder().getAbsoluteFile().getParentFile(), "catalog.json");
+    }
+
+    /**
+     * Handles the checking and creation of the binary statistics file, the statistic summaries and the pyramid.
+     * Plain-text statistics are converted to the binary format once. The text files are kept, since the conversion merges
+     * samples with the same timestamp and drops unmapped or malformed lines. The summaries are collected while parsing,
+     * or read from the binary statistics for logs processed before summaries existed.
      *
      * @param log {@link Log}
      */
     private void handleLogStatistics(Log log) {
         try {
-            File parent = new File(Cabinet.getInstance().getFolder(), String.valueOf(log.getId()));
+            File parent = getLogDirectory(log.getId());
             File statsMap = new File(parent, log.getId() + ".map.stats");
             File stats = new File(parent, log.getId() + ".stats");
-            boolean sheetExist = Util.doesChildFileExist(parent, log.getId() + ".xlsx");
-            if (sheetExist) {
+            File binary = new File(parent, log.getId() + StatisticsBinaryFormat.EXTENSION);
+            boolean textExist = stats.exists() && statsMap.exists();
+            if (SheetCache.getInstance().getSheetFile(log.getId()).exists()) {
+                SheetCache.getInstance().record(log.getId());
                 log.setDoesSheetExist(true);
+            }
+            if (!binary.exists() && !textExist) {
                 return;
             }
-            if (stats.exists() && statsMap.exists()) {
+            if (!binary.exists()) {
                 long start = System.currentTimeMillis();
-                LogHandler.log.info("Generating excel sheet for Log #{} ...", log.getId());
                 StatisticsSheetWriter writer = new StatisticsSheetWriter(log, stats, statsMap);
                 writer.parse();
-                writer.write(new File(parent, log.getId() + ".xlsx"));
-                LogHandler.log.info("Finished generating excel sheet in {} ms.", (System.currentTimeMillis() - start));
-                log.setDoesSheetExist(true);
+                writer.writeBinary(binary);
+                log.setSummaries(writer.getSummaries());
+                LogHandler.log.info("Converted statistics for Log #{} to binary in {} ms.", log.getId(), (System.currentTimeMillis() - start));
+            } else if (log.getSummaries() == null) {
+                log.setSummaries(StatisticsBinaryFormat.summarize(binary));
             }
+            File pyramid = StatisticsPyramid.getFile(binary);
+            if (!pyramid.exists()) {
+                // Written aside and moved in place, as sheets and queries may read the pyramid at any time
+                File temp = new File(parent, pyramid.getName() + ".tmp");
+                StatisticsPyramid.write(binary, temp);
+                Files.move(temp.toPath(), pyramid.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            log.setDoesSheetExist(true);
+            saveLogToManifest(log);
         } catch (IOException e) {
-            LogHandler.log.error("Error while handling log statistics.", e);
+            // Stops the log here, so it is not recorded as processed and is retried on the next start
+            throw new UncheckedIOException("Failed to handle statistics for log: " + log.getId(), e);
         }
     }
 
     /**
-     * Handles the checking and creation of the log archive.
+     * Handles the creation of the statistics sheet from the binary statistics.
+     * In lazy mode, the sheet is left for the {@link SheetCache} to render on request.
+     *
+     * @param log {@link Log}
+     */
+    private void handleLogSheet(Log log) {
+        if (SheetCache.getInstance().isLazy() || !log.isDoesSheetExist()) {
+            return;
+        }
+        try {
+            SheetCache.getInstance().getSheet(log).join();
+        } catch (CompletionException e) {
+            LogHandler.log.error("Error while generating excel sheet for log: {}", log.getId(), e.getCause());
+        }
+    }
+
+    /**
+     * Handles the checking and creation of the log archive, which is the last stage of processing a log.
+     * The log is then recorded as processed in the catalog.
      *
      * @param log {@link Log}
      */
     private void handleLogArchive(Log log) {
-        File parent = new File(Cabinet.getInstance().getFolder(), String.valueOf(log.getId()));
-        File zip = new File(parent, log.getId() + ".zip");
-        if (!zip.exists()) {
-            try {
-                Util.zipFolder(parent, zip);
-            } catch (IOException e) {
-                LogHandler.log.warn("Failed to zip log: {}", log.getId(), e);
+        ArchiveHandler.getInstance().handle(log);
+        processed.add(log.getId());
+        onCatalogChanged();
+    }
+
+    /**
+     * Gets the line index of a log, building it if it does not exist.
+     *
+     * @param log {@link Log}
+     * @return The line index file.
+     */
+    public File getLineIndex(Log log) throws IOException {
+        File parent = getLogDirectory(log.getId());
+        File index = new File(parent, log.getId() + LineIndex.EXTENSION);
+        if (!index.exists()) {
+            LineIndex.write(new File(parent, log.getId() + ".txt"), index);
+        }
+        return index;
+    }
+
+    /**
+     * Gets the directory of a log.
+     *
+     * @param id Id of log.
+     * @return The directory of the log.
+     */
+    public File getLogDirectory(int id) {
+        return new File(Cabinet.getInstance().getFolder(), String.valueOf(id));
+    }
+
+    /**
+     * Gets a page of logs matching a query.
+     * The session and upload date indexes narrow down the candidates when the query filters by date.
+     *
+     * @param query {@link LogQuery}
+     * @return The matching logs, ordered by descending id, with at most one more log than the limit of the query.
+     */
+    public List<Log> query(LogQuery query) {
+        Collection<Log> candidates;
+        if (query.hasDateRange() || query.hasUploadDateRange()) {
+            NavigableSet<Integer> ids = null;
+            if (query.hasDateRange()) {
+                ids = collectIds(dateIndex, query.getFrom(), query.getTo());
+            }
+            if (query.hasUploadDateRange()) {
+                NavigableSet<Integer> uploaded = collectIds(uploadDateIndex, query.getUploadedFrom(), query.getUploadedTo());
+                if (ids == null) {
+                    ids = uploaded;
+                } else {
+                    ids.retainAll(uploaded);
+                }
             }
+            if (query.getBefore() != null) {
+                ids = ids.tailSet(query.getBefore(), false);
+            }
+            candidates = ids.stream().map(logs::get).filter(Objects::nonNull).collect(Collectors.toList());
+        } else {
+            candidates = query.getBefore() == null ? logs.values() : logs.tailMap(query.getBefore(), false).values();
         }
-        log.setSize(Util.humanReadableBytes(zip.length()));
+        List<Log> page = new ArrayList<>();
+        for (Log log : candidates) {
+            if (query.matches(log)) {
+                page.add(log);
+                if (page.size() > query.getLimit()) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Evaluates an aggregate of a statistic for each of the most recent logs within the date range of a query.
+     * Logs with a summary of the statistic are answered from it, while the others are scanned in parallel, streaming
+     * only the statistic from their binary statistics.
+     *
+     * @param query {@link AnalyticsQuery}
+     * @return The aggregate of each log which has the statistic, ordered by session date.
+     */
+    public List<AggregatePoint> aggregate(AnalyticsQuery query) {
+        List<Log> candidates = query(new LogQuery(query.getLimit(), null, query.getFrom(), query.getTo(), null, null, true));
+        if (candidates.size() > query.getLimit()) {
+            candidates = candidates.subList(0, query.getLimit());
+        }
+        List<AggregatePoint> points = new ArrayList<>();
+        List<Log> scans = new ArrayList<>();
+        for (Log log : candidates) {
+            if (log.isLive()) {
+                continue;
+            }
+            ChannelSummary summary = log.getSummaries() == null ? null : log.getSummaries().get(query.getChannel());
+            if (query.isSummaryAggregate() && summary != null) {
+                points.add(new AggregatePoint(log.getId(), log.getDate(), query.fromSummary(summary)));
+            } else if (log.getSummaries() == null || summary != null) {
+                scans.add(log);
+            }
+        }
+        if (!scans.isEmpty()) {
+            points.addAll(analyticsPool.submit(() -> scans.parallelStream()
+                    .map(log -> scan(query, log))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())).join());
+        }
+        points.sort(Comparator.comparing(AggregatePoint::getDate).thenComparingInt(AggregatePoint::getId));
+        return points;
+    }
+
+    private AggregatePoint scan(AnalyticsQuery query, Log log) {
+        File binary = new File(getLogDirectory(log.getId()), log.getId() + StatisticsBinaryFormat.EXTENSION);
+        try {
+            double value = query.scan(binary);
+            return Double.isNaN(value) ? null : new AggregatePoint(log.getId(), log.getDate(), value);
+        } catch (IOException e) {
+            LogHandler.log.warn("Failed to scan statistics of log: {}", log.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Collects the ids of logs within a date range of an index.
+     *
+     * @param index The date index.
+     * @param from  The inclusive start of the range, or null.
+     * @param to    The inclusive end of the range, or null.
+     * @return Set of log ids, ordered by descending id.
+     */
+    private static NavigableSet<Integer> collectIds(NavigableMap<LocalDateTime, Set<Integer>> index, LocalDateTime from, LocalDateTime to) {
+        NavigableMap<LocalDateTime, Set<Integer>> range = index;
+        if (from != null) {
+            range = range.tailMap(from, true);
+        }
+        if (to != null) {
+            range = range.headMap(to, true);
+        }
+        NavigableSet<Integer> ids = new TreeSet<>(Collections.reverseOrder());
+        range.values().forEach(ids::addAll);
+        return ids;
+    }
+
+    /**
+     * Adds a log to the registry and its date indexes.
+     *
+     * @param log {@link Log}
+     */
+    private void register(Log log) {
+        logs.put(log.getId(), log);
+        dateIndex.computeIfAbsent(log.getDate(), d -> ConcurrentHashMap.newKeySet()).add(log.getId());
+        uploadDateIndex.computeIfAbsent(log.getUploadDate(), d -> ConcurrentHashMap.newKeySet()).add(log.getId());
     }
 
     /**
@@ -256,4 +907,59 @@ public class LogHandler {
     public Log getLog(int id) {
         return logs.get(id);
     }
+
+    /**
+     * A serialized listing of every log, along with its gzip-compressed form and entity tag.
+     */
+    @Getter
+    public static class Listing {
+        private final long version;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+
+        private Listing(long version, byte[] json) throws IOException {
+            this.version = version;
+            this.json = json;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4);
+            try (
+                    GZIPOutputStream gzipStream = new GZIPOutputStream(bytes);
+            ) {
+                gzipStream.write(json);
+            }
+            this.gzip = bytes.toByteArray();
+            try {
+                StringBuilder hex = new StringBuilder("\"");
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(json);
+                for (int i = 0; i < 12; i++) {
+                    hex.append(String.format("%02x", digest[i]));
+                }
+                this.etag = hex.append('"').toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Checks if an If-None-Match header matches the listing.
+         *
+         * @param ifNoneMatch The If-None-Match header, or null.
+         * @return True if the client already has the listing, false otherwise.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
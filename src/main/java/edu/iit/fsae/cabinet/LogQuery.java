@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import edu.iit.fsae.cabinet.entities.Log;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A page of the log listing, filtered by session date, upload date and sheet availability.
+ * Pages are ordered by descending id, and continue from the id of the last log of the previous page.
+ *
+ * @author Noah Husby
+ */
+@Getter
+@RequiredArgsConstructor
+public class LogQuery {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private final int limit;
+    private final Integer before;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final LocalDateTime uploadedFrom;
+    private final LocalDateTime uploadedTo;
+    private final Boolean hasSheet;
+
+    /**
+     * @return True if the query filters by session date, false otherwise.
+     */
+    public boolean hasDateRange() {
+        return from != null || to != null;
+    }
+
+    /**
+     * @return True if the query filters by upload date, false otherwise.
+     */
+    public boolean hasUploadDateRange() {
+        return uploadedFrom != null || uploadedTo != null;
+    }
+
+    /**
+     * Checks if a log matches every filter of the query.
+     *
+     * @param log {@link Log}
+     * @return True if the log matches, false otherwise.
+     */
+    public boolean matches(Log log) {
+        if (before != null && log.getId() >= before) {
+            return false;
+        }
+        if (!inRange(log.getDate(), from, to) || !inRange(log.getUploadDate(), uploadedFrom, uploadedTo)) {
+            return false;
+        }
+        return hasSheet == null || hasSheet == log.isDoesSheetExist();
+    }
+
+    private static boolean inRange(LocalDateTime date, LocalDateTime from, LocalDateTime to) {
+        return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import edu.iit.fsae.cabinet.entities.Log;
+import edu.iit.fsae.cabinet.util.StatisticsParser;
+import edu.iit.fsae.cabinet.util.Util;
+import edu.iit.fsae.cabinet.util.tracking.TrackerSet;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-progress log, which receives its plain-text log and statistics in appended chunks.
+ * Tracked statistics are updated as each chunk arrives.
+ *
+ * @author Noah Husby
+ */
+@Slf4j
+public class LogSession {
+
+    private static final Type statMapType = new TypeToken<Map<String, String>>() {}.getType();
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Getter
+    private final Log logMetadata;
+    private final File logFile;
+    private final File statsFile;
+    private final File statsMapFile;
+    private final TrackerSet trackers = new TrackerSet();
+    private final Map<Integer, Integer> columnsById = new HashMap<>();
+    private TrackerSet.Binding binding;
+    private final StatisticsParser parser;
+    private long statsLength;
+
+    /**
+     * Creates a session for a log.
+     * Any statistics already appended to the log are replayed, so a session can be resumed after a restart.
+     *
+     * @param logMetadata {@link Log}
+     * @param directory   The directory of the log.
+     */
+    public LogSession(Log logMetadata, File directory) throws IOException {
+        this.logMetadata = logMetadata;
+        logFile = new File(directory, logMetadata.getId() + ".txt");
+        statsFile = new File(directory, logMetadata.getId() + ".stats");
+        statsMapFile = new File(directory, logMetadata.getId() + ".map.stats");
+        if (logFile.createNewFile()) {
+            log.debug("Created log file for session: {}", logMetadata.getId());
+        }
+        parser = new StatisticsParser((timestamp, id, value) -> {
+            Integer column = columnsById.get(id);
+            if (column != null) {
+                binding.post(column, timestamp, value);
+            }
+        });
+        if (statsMapFile.exists()) {
+            mapTrackers();
+        }
+        parser.begin(0);
+        if (statsFile.exists()) {
+            try (
+                    InputStream is = new FileInputStream(statsFile);
+            ) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = is.read(buffer)) >= 0) {
+                    parser.append(buffer, read);
+                }
+            }
+            statsLength = statsFile.length();
+        }
+    }
+
+    /**
+     * Sets the statistics mapping file of the session.
+     *
+     * @param content The json statistics mapping file.
+     */
+    public synchronized void setStatsMap(InputStream content) throws IOException {
+        Files.copy(content, statsMapFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        mapTrackers();
+    }
+
+    /**
+     * Appends a chunk of the plain-text log.
+     *
+     * @param content The chunk.
+     */
+    public synchronized void appendLog(InputStream content) throws IOException {
+        try (
+                OutputStream os = new FileOutputStream(logFile, true);
+        ) {
+            content.transferTo(os);
+        }
+        logMetadata.setSize(Util.humanReadableBytes(logFile.length() + statsLength));
+        LogHandler.getInstance().invalidateListing();
+    }
+
+    /**
+     * Appends a chunk of plain-text statistics, updating the tracked statistics.
+     * A chunk may end part way through a line, in which case the line is completed by the next chunk. The chunk is
+     * streamed to the statistics file and parser through a fixed buffer, so it is never held in memory.
+     *
+     * @param content The chunk.
+     */
+    public synchronized void appendStats(InputStream content) throws IOException {
+        if (!statsMapFile.exists()) {
+            throw new IllegalStateException("The 'stats_map' file has not been set for this session.");
+        }
+        try (
+                OutputStream os = new FileOutputStream(statsFile, true);
+        ) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) >= 0) {
+                os.write(buffer, 0, read);
+                parser.append(buffer, read);
+                statsLength += read;
+            }
+        }
+        logMetadata.setSize(Util.humanReadableBytes(logFile.length() + statsLength));
+        LogHandler.getInstance().invalidateListing();
+    }
+
+    /**
+     * Gets the current values of the tracked statistics.
+     *
+     * @return {@link JsonObject} of tracker name and value.
+     */
+    public synchronized JsonObject getTrackedStatistics() {
+        return trackers.toJson();
+    }
+
+    private void mapTrackers() throws IOException {
+        Map<String, String> statsMap;
+        try (
+                FileReader reader = new FileReader(statsMapFile);
+        ) {
+            statsMap = Constants.GSON.fromJson(reader, statMapType);
+        }
+        columnsById.clear();
+        List<String> names = new ArrayList<>();
+        statsMap.forEach((id, name) -> {
+            if (Util.isInteger(id)) {
+                columnsById.put(Integer.parseInt(id), names.size());
+                names.add(name);
+            }
+        });
+        binding = trackers.bind(names);
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import com.google.gson.JsonObject;
+import edu.iit.fsae.cabinet.util.StatisticsBinaryFormat;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Schedules sheet renders on their own threads under a global memory budget.
+ * <p>
+ * Each render is admitted with an estimated cost in bytes. Renders are started in submission order while the
+ * estimated bytes in use stay within the budget, and the rest wait in a queue. A render larger than the whole budget
+ * is started once nothing else is rendering, so it runs alone instead of waiting forever.
+ * <p>
+ * The budget only covers sheet renders. Parsing the plain-text statistics of a new log into its binary form, which
+ * also holds the full table in memory, runs in the statistics stage of the {@link IngestPipeline} and is bounded by
+ * that stage's concurrency instead.
+ *
+ * @author Noah Husby
+ */
+@Slf4j
+public class RenderScheduler {
+    @Getter
+    private static final RenderScheduler instance = new RenderScheduler();
+
+    private static final int DEFAULT_THREADS = 2;
+    // Workbook templates, styles and the streaming row window of a render
+    private static final long BASE_COST = 32L * 1024 * 1024;
+
+    @Getter
+    private final int threads;
+    @Getter
+    private final long budget;
+    private final ExecutorService renderThreads;
+    private final Deque<Job<?>> queue = new ArrayDeque<>();
+    private int running = 0;
+    private long bytesInUse = 0;
+    private long completed = 0;
+    private long failed = 0;
+    private long totalDuration = 0;
+    private long maxDuration = 0;
+    private long lastDuration = 0;
+
+    protected RenderScheduler() {
+        String threads = System.getenv("CABINET_RENDER_THREADS");
+        this.threads = threads == null ? DEFAULT_THREADS : Math.max(1, Integer.parseInt(threads));
+        String budget = System.getenv("CABINET_RENDER_MEMORY_BUDGET");
+        this.budget = budget == null ? Runtime.getRuntime().maxMemory() / 2 : Long.parseLong(budget);
+        AtomicInteger count = new AtomicInteger(0);
+        renderThreads = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread thread = new Thread(r, "render-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(renderThreads::shutdown));
+    }
+
+    /**
+     * Submits a render, starting it once the budget allows.
+     *
+     * @param cost   The estimated amount of memory used by the render, in bytes.
+     * @param render The render.
+     * @return A future of the result of the render.
+     */
+    public <T> CompletableFuture<T> submit(long cost, Supplier<T> render) {
+        Job<T> job = new Job<>(cost, render);
+        synchronized (this) {
+            queue.add(job);
+            if (queue.size() > 1 || running >= threads) {
+                log.debug("Queued render of {} bytes behind {} others.", cost, queue.size() - 1);
+            }
+            dispatch();
+        }
+        return job.future;
+    }
+
+    /**
+     * Estimates the memory used to render a sheet from a binary statistics file.
+     * The statistics of a log are held in memory as a table while the sheet is written, so the cost grows with its
+     * rows and columns rather than with the size of the compressed file.
+     *
+     * @param binary The binary statistics file.
+     * @return The estimated cost, in bytes.
+     */
+    public static long estimateCost(File binary) {
+        try (
+                StatisticsBinaryFormat.Reader reader = new StatisticsBinaryFormat.Reader(binary);
+        ) {
+            long rows = reader.getRows();
+            long columns = reader.getIds().size();
+            // A timestamp per row, and an int plus a presence bit per cell, doubled for the growth of the arrays
+            return BASE_COST + 2 * (rows * Long.BYTES + rows * columns * Integer.BYTES + rows * columns / 8);
+        } catch (IOException e) {
+            log.warn("Failed to read binary statistics header to estimate render cost: {}", binary.getName(), e);
+            return BASE_COST;
+        }
+    }
+
+    /**
+     * @return The render metrics, as JSON.
+     */
+    public synchronized JsonObject getMetrics() {
+        JsonObject object = new JsonObject();
+        object.addProperty("threads", threads);
+        object.addProperty("budget", budget);
+        object.addProperty("bytesInUse", bytesInUse);
+        object.addProperty("running", running);
+        object.addProperty("queueDepth", queue.size());
+        object.addProperty("queuedBytes", queue.stream().mapToLong(j -> j.cost).sum());
+        object.addProperty("completed", completed);
+        object.addProperty("failed", failed);
+        object.addProperty("lastDuration", lastDuration);
+        object.addProperty("averageDuration", completed + failed == 0 ? 0 : totalDuration / (completed + failed));
+        object.addProperty("maxDuration", maxDuration);
+        return object;
+    }
+
+    private void dispatch() {
+        // Renders are started in order, so a large render at the head of the queue is not overtaken indefinitely
+        while (!queue.isEmpty() && running < threads) {
+            Job<?> job = queue.peek();
+            if (running > 0 && bytesInUse + job.cost > budget) {
+                return;
+            }
+            queue.poll();
+            running++;
+            bytesInUse += job.cost;
+            renderThreads.execute(job);
+        }
+    }
+
+    private synchronized void finish(Job<?> job, long duration, boolean success) {
+        running--;
+        bytesInUse -= job.cost;
+        if (success) {
+            completed++;
+        } else {
+            failed++;
+        }
+        totalDuration += duration;
+        maxDuration = Math.max(maxDuration, duration);
+        lastDuration = duration;
+        dispatch();
+    }
+
+    private class Job<T> implements Runnable {
+        private final long cost;
+        private final Supplier<T> render;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Job(long cost, Supplier<T> render) {
+            this.cost = cost;
+            this.render = render;
+        }
+
+        @Override
+        public void run() {
+            long start = System.currentTimeMillis();
+            T result;
+            try {
+                result = render.get();
+            } catch (Throwable e) {
+                finish(this, System.currentTimeMillis() - start, false);
+                future.completeExceptionally(e);
+                return;
+            }
+            finish(this, System.currentTimeMillis() - start, true);
+            future.complete(result);
+        }
+    }
+}
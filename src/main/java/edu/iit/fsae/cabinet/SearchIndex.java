@@ -0,0 +1,395 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import edu.iit.fsae.cabinet.entities.Log;
+import edu.iit.fsae.cabinet.util.LogTextIndex;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A full-text index over the plain-text log files.
+ * <p>
+ * Every log has its own {@link LogTextIndex} file, holding the line offsets of each token. The global segment maps
+ * each token to the logs it appears in, along with the position of its line offsets in their index files, so a query
+ * only reads the offsets and lines of matching logs.
+ *
+ * @author Noah Husby
+ */
+@Slf4j
+public class SearchIndex {
+    @Getter
+    private static final SearchIndex instance = new SearchIndex();
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private static final int MAGIC = 0x43425347;
+    private static final short VERSION = 2;
+    private static final int POSITION_BITS = 40;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+    // The sign bit is left clear
+    private static final int MAX_ID = (1 << (Long.SIZE - 1 - POSITION_BITS)) - 1;
+    private static final int MAX_LINES_PER_LOG = 5;
+    private static final int MAX_LINE_LENGTH = 500;
+    private static final long SAVE_DELAY = 5000;
+
+    /**
+     * Token to postings, where each posting is a log id in the upper bits and an index file position in the lower
+     * {@link #POSITION_BITS} bits.
+     */
+    private final Map<String, long[]> postings = new HashMap<>();
+    private final Set<Integer> indexed = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Integer> indexing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService indexThread = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService saveThread = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean(false);
+
+    protected SearchIndex() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            indexThread.shutdown();
+            saveThread.shutdown();
+            save();
+        }));
+    }
+
+    /**
+     * Loads the global segment, then indexes every log which is missing from it in the background.
+     *
+     * @param logs Every loaded log.
+     */
+    public void load(Collection<Log> logs) {
+        File segment = getSegmentFile();
+        if (segment.exists()) {
+            try {
+                readSegment(segment);
+            } catch (IOException e) {
+                log.warn("Failed to read search index. It will be rebuilt.", e);
+                postings.clear();
+                indexed.clear();
+            }
+        }
+        int missing = 0;
+        for (Log log : logs) {
+            if (!log.isLive() && !indexed.contains(log.getId())) {
+                indexThread.submit(() -> index(log));
+                missing++;
+            }
+        }
+        log.info("Loaded search index of {} logs, {} queued for indexing", indexed.size(), missing);
+    }
+
+    /**
+     * Indexes a log and merges it into the global segment.
+     * The index file of the log is reused if it already exists.
+     *
+     * @param log {@link Log}
+     */
+    public void index(Log log) {
+        int id = log.getId();
+        if (!indexing.add(id)) {
+            return;
+        }
+        try {
+            lock.readLock().lock();
+            try {
+                if (indexed.contains(id)) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            File directory = LogHandler.getInstance().getLogDirectory(id);
+            File textFile = new File(directory, id + ".txt");
+            File indexFile = new File(directory, id + LogTextIndex.EXTENSION);
+            if (!textFile.exists()) {
+                return;
+            }
+            Map<String, Long> positions;
+            if (indexFile.exists()) {
+                positions = LogTextIndex.readDictionary(indexFile);
+            } else {
+                long start = System.currentTimeMillis();
+                File temp = new File(directory, indexFile.getName() + ".tmp");
+                positions = LogTextIndex.write(textFile, temp);
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                SearchIndex.log.info("Indexed Log #{} in {} ms.", id, (System.currentTimeMillis() - start));
+            }
+            if (id > MAX_ID || positions.values().stream().anyMatch(position -> position > POSITION_MASK)) {
+                SearchIndex.log.error("Log #{} is too large to be added to the search index.", id);
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                positions.forEach((token, position) -> add(token, ((long) id << POSITION_BITS) | position));
+                indexed.add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            scheduleSave();
+        } catch (IOException e) {
+            SearchIndex.log.error("Failed to index log: {}", id, e);
+        } finally {
+            indexing.remove(id);
+        }
+    }
+
+    /**
+     * Searches the plain-text logs for lines containing every token of a query.
+     *
+     * @param query The query.
+     * @param limit The maximum amount of logs to return.
+     * @return {@link JsonObject} holding the matching logs, newest first, with highlighted line snippets.
+     * @throws IllegalArgumentException If the query has no searchable tokens.
+     */
+    public JsonObject search(String query, int limit) throws IOException {
+        Set<String> tokens = LogTextIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("The query does not contain any searchable words.");
+        }
+        // Log id to the index file positions of every token
+        Map<Integer, long[]> candidates = null;
+        lock.readLock().lock();
+        try {
+            int t = 0;
+            for (String token : tokens) {
+                long[] list = postings.get(token);
+                if (list == null) {
+                    candidates = new HashMap<>();
+                    break;
+                }
+                Map<Integer, long[]> next = new HashMap<>();
+                for (int i = 1; i <= list[0]; i++) {
+                    int id = (int) (list[i] >>> POSITION_BITS);
+                    long[] positions = candidates == null ? new long[tokens.size()] : candidates.get(id);
+                    if (positions != null) {
+                        positions[t] = list[i] & POSITION_MASK;
+                        next.put(id, positions);
+                    }
+                }
+                candidates = next;
+                t++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Integer> ids = new ArrayList<>(candidates.keySet());
+        ids.sort(Comparator.reverseOrder());
+        JsonArray results = new JsonArray();
+        for (int id : ids) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (LogHandler.getInstance().getLog(id) == null) {
+                continue;
+            }
+            File directory = LogHandler.getInstance().getLogDirectory(id);
+            File indexFile = new File(directory, id + LogTextIndex.EXTENSION);
+            File textFile = new File(directory, id + ".txt");
+            long[] lines = null;
+            for (long position : candidates.get(id)) {
+                long[] offsets = LogTextIndex.readLineOffsets(indexFile, position);
+                lines = lines == null ? offsets : intersect(lines, offsets);
+            }
+            if (lines == null || lines.length == 0) {
+                continue;
+            }
+            JsonObject result = new JsonObject();
+            result.addProperty("log", id);
+            result.addProperty("matches", lines.length);
+            JsonArray snippets = new JsonArray();
+            for (int i = 0; i < Math.min(lines.length, MAX_LINES_PER_LOG); i++) {
+                snippets.add(snippet(textFile, lines[i], tokens));
+            }
+            result.add("lines", snippets);
+            results.add(result);
+        }
+        JsonObject object = new JsonObject();
+        JsonArray tokenArray = new JsonArray();
+        tokens.forEach(tokenArray::add);
+        object.add("tokens", tokenArray);
+        object.add("results", results);
+        return object;
+    }
+
+    private static JsonObject snippet(File textFile, long offset, Set<String> tokens) throws IOException {
+        String line = LogTextIndex.readLine(textFile, offset, MAX_LINE_LENGTH);
+        JsonArray highlights = new JsonArray();
+        for (int[] range : LogTextIndex.tokenRanges(line)) {
+            if (tokens.contains(line.substring(range[0], range[1]).toLowerCase())) {
+                JsonArray highlight = new JsonArray();
+                highlight.add(range[0]);
+                highlight.add(range[1]);
+                highlights.add(highlight);
+            }
+        }
+        JsonObject snippet = new JsonObject();
+        snippet.addProperty("offset", offset);
+        snippet.addProperty("text", line);
+        snippet.add("highlights", highlights);
+        return snippet;
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+
+    private void add(String token, long posting) {
+        long[] list = postings.computeIfAbsent(token, t -> new long[]{0, 0});
+        int count = (int) list[0];
+        if (count + 1 == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            postings.put(token, list);
+        }
+        list[count + 1] = posting;
+        list[0] = count + 1;
+    }
+
+    private void scheduleSave() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            saveThread.schedule(() -> {
+                saveScheduled.set(false);
+                save();
+            }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves the global segment.
+     * The segment is written to a temporary file first, and then atomically moved in place.
+     */
+    private synchronized void save() {
+        File segment = getSegmentFile();
+        File temp = new File(segment.getParentFile(), segment.getName() + ".tmp");
+        lock.readLock().lock();
+        try (
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+        ) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(indexed.size());
+            for (int id : indexed) {
+                out.writeInt(id);
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, long[]> e : new TreeMap<>(postings).entrySet()) {
+                out.writeUTF(e.getKey());
+                long[] list = e.getValue();
+                out.writeInt((int) list[0]);
+                for (int i = 1; i <= list[0]; i++) {
+                    out.writeLong(list[i]);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to write search index.", e);
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(temp.toPath(), segment.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to replace search index.", e);
+        }
+    }
+
+    private void readSegment(File segment) throws IOException {
+        try (
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment), 1 << 16));
+        ) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Unsupported search index: " + segment.getName());
+            }
+            int logs = in.readInt();
+            for (int i = 0; i < logs; i++) {
+                indexed.add(in.readInt());
+            }
+            int tokens = in.readInt();
+            for (int i = 0; i < tokens; i++) {
+                String token = in.readUTF();
+                int count = in.readInt();
+                long[] list = new long[count + 1];
+                list[0] = count;
+                for (int j = 1; j <= count; j++) {
+                    list[j] = in.readLong();
+                }
+                postings.put(token, list);
+            }
+        }
+    }
+
+    /**
+     * Gets the global segment file, which lives beside the log directory.
+     *
+     * @return The global segment file.
+     */
+    private File getSegmentFile() {
+        return new File(Cabinet.getInstance().getFolder().getAbsoluteFile().getParentFile(), "search.idx");
+    }
+}
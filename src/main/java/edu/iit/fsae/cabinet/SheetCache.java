@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import edu.iit.fsae.cabinet.entities.Log;
+import edu.iit.fsae.cabinet.util.StatisticsBinaryFormat;
+import edu.iit.fsae.cabinet.util.StatisticsSheetWriter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of rendered statistics sheets.
+ * <p>
+ * Sheets are rendered from the binary statistics of a log. Concurrent requests for the same sheet share a single
+ * render. In lazy mode, sheets are only rendered when first requested, and the least recently used sheets are removed
+ * once the cache grows past its size limit. Sheets which are being served are pinned, so they are not evicted until
+ * they have been opened. Renders are run by the {@link RenderScheduler}, which bounds the memory used by concurrent
+ * renders.
+ *
+ * @author Noah Husby
+ */
+@Slf4j
+public class SheetCache {
+    @Getter
+    private static final SheetCache instance = new SheetCache();
+
+    private static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+
+    @Getter
+    private final boolean lazy;
+    private final long maxSize;
+    private final Map<Integer, Long> sheets = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Integer> pins = new HashMap<>();
+    private long size = 0;
+    private final Map<Integer, CompletableFuture<File>> renders = new ConcurrentHashMap<>();
+
+    protected SheetCache() {
+        lazy = Boolean.parseBoolean(System.getenv("CABINET_LAZY_SHEETS"));
+        String maxSize = System.getenv("CABINET_SHEET_CACHE_SIZE");
+        this.maxSize = maxSize == null ? DEFAULT_MAX_SIZE : Long.parseLong(maxSize);
+    }
+
+    /**
+     * Gets the statistics sheet of a log, rendering it if it does not exist.
+     *
+     * @param log {@link Log}
+     * @return A future of the sheet, which completes with null if the log has no statistics.
+     */
+    public CompletableFuture<File> getSheet(Log log) {
+        int id = log.getId();
+        File sheet = getSheetFile(id);
+        synchronized (this) {
+            if (sheet.exists()) {
+                // Looking up the sheet also marks it as recently used
+                if (sheets.get(id) == null) {
+                    add(id, sheet);
+                }
+                return CompletableFuture.completedFuture(sheet);
+            }
+        }
+        File binary = new File(LogHandler.getInstance().getLogDirectory(id), id + StatisticsBinaryFormat.EXTENSION);
+        if (!binary.exists()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<File> future = renders.computeIfAbsent(id, k -> RenderScheduler.getInstance().submit(RenderScheduler.estimateCost(binary), () -> render(log, binary, sheet)));
+        future.whenComplete((f, e) -> renders.remove(id, future));
+        return future;
+    }
+
+    /**
+     * Gets the statistics sheet of a log like {@link #getSheet(Log)}, and keeps it from being evicted until it is
+     * released with {@link #release(int)}. A sheet which resolves to null is released right away.
+     *
+     * @param log {@link Log}
+     * @return A future of the sheet, which completes with null if the log has no statistics.
+     */
+    public CompletableFuture<File> acquireSheet(Log log) {
+        int id = log.getId();
+        synchronized (this) {
+            pins.merge(id, 1, Integer::sum);
+        }
+        return getSheet(log).whenComplete((sheet, e) -> {
+            if (sheet == null) {
+                release(id);
+            }
+        });
+    }
+
+    /**
+     * Releases a sheet acquired with {@link #acquireSheet(Log)}.
+     *
+     * @param id Id of log.
+     */
+    public synchronized void release(int id) {
+        pins.computeIfPresent(id, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Renders a sheet from previously loaded statistics, adding it to the cache.
+     *
+     * @param writer {@link StatisticsSheetWriter} holding the statistics of the log.
+     * @param id     Id of log.
+     */
+    public void write(StatisticsSheetWriter writer, int id) throws IOException {
+        File sheet = getSheetFile(id);
+        File temp = new File(sheet.getParentFile(), sheet.getName() + ".tmp");
+        writer.write(temp);
+        Files.move(temp.toPath(), sheet.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            add(id, sheet);
+        }
+    }
+
+    /**
+     * Records an existing sheet in the cache.
+     *
+     * @param id Id of log.
+     */
+    public synchronized void record(int id) {
+        File sheet = getSheetFile(id);
+        if (sheet.exists() && sheets.get(id) == null) {
+            add(id, sheet);
+        }
+    }
+
+    /**
+     * Gets the sheet file of a log.
+     *
+     * @param id Id of log.
+     * @return The sheet file.
+     */
+    public File getSheetFile(int id) {
+        return new File(LogHandler.getInstance().getLogDirectory(id), id + ".xlsx");
+    }
+
+    private File render(Log log, File binary, File sheet) {
+        if (sheet.exists()) {
+            return sheet;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            SheetCache.log.info("Rendering excel sheet for Log #{} ...", log.getId());
+            File parent = sheet.getParentFile();
+            StatisticsSheetWriter writer = new StatisticsSheetWriter(log, new File(parent, log.getId() + ".stats"), new File(parent, log.getId() + ".map.stats"));
+            writer.load(binary);
+            write(writer, log.getId());
+            SheetCache.log.info("Finished rendering excel sheet in {} ms.", (System.currentTimeMillis() - start));
+            return sheet;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void add(int id, File sheet) {
+        Long previous = sheets.put(id, sheet.length());
+        size += sheet.length() - (previous == null ? 0 : previous);
+        if (!lazy) {
+            return;
+        }
+        Iterator<Map.Entry<Integer, Long>> iterator = sheets.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<Integer, Long> eldest = iterator.next();
+            // The newest sheet is always kept, even if it is larger than the cache, and pinned sheets are being served
+            if (eldest.getKey() == id || pins.containsKey(eldest.getKey())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(getSheetFile(eldest.getKey()).toPath());
+            } catch (IOException e) {
+                log.warn("Failed to evict sheet for log: {}", eldest.getKey(), e);
+                continue;
+            }
+            size -= eldest.getValue();
+            iterator.remove();
+            log.debug("Evicted sheet for log: {}", eldest.getKey());
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import edu.iit.fsae.cabinet.entities.Log;
+import edu.iit.fsae.cabinet.util.MultipartStreamReader;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A handler for resumable, chunked uploads of logs.
+ * <p>
+ * Clients declare the files of an upload and a fixed chunk size, then send each chunk with its offset and SHA-256
+ * checksum. Received chunks are written in place to a staging directory, so an interrupted upload can be resumed by
+ * only sending the chunks which are reported as missing. The amount of pending uploads is limited, and uploads which
+ * have not received a chunk for a while are removed periodically.
+ *
+ * @author Noah Husby
+ */
+@Slf4j
+public class UploadHandler {
+    @Getter
+    private static final UploadHandler instance = new UploadHandler();
+
+    public static final String STAGING_DIRECTORY = ".uploads";
+    public static final String LOG = "log";
+    public static final String STATS = "stats";
+    public static final String STATS_MAP = "stats_map";
+    public static final String CHECKSUM_HEADER = "X-Chunk-SHA256";
+
+    private static final long MIN_CHUNK_SIZE = 64L * 1024;
+    private static final long MAX_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long EXPIRY = TimeUnit.DAYS.toMillis(3);
+    private static final long EXPIRY_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    private static final int DEFAULT_MAX_PENDING = 16;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final int maxPending;
+    private final ScheduledExecutorService expiryThread = Executors.newSingleThreadScheduledExecutor();
+
+    protected UploadHandler() {
+        String maxPending = System.getenv("CABINET_MAX_PENDING_UPLOADS");
+        this.maxPending = maxPending == null ? DEFAULT_MAX_PENDING : Integer.parseInt(maxPending);
+        Runtime.getRuntime().addShutdownHook(new Thread(expiryThread::shutdown));
+    }
+
+    /**
+     * @return The staging directory of uploads.
+     */
+    private File getStagingDirectory() {
+        return new File(Cabinet.getInstance().getFolder(), STAGING_DIRECTORY);
+    }
+
+    /**
+     * Loads pending uploads from the staging directory, removing any which have expired, and schedules the removal of
+     * uploads which expire later on.
+     */
+    public void load() {
+        expiryThread.scheduleWithFixedDelay(this::expire, EXPIRY_INTERVAL, EXPIRY_INTERVAL, TimeUnit.MILLISECONDS);
+        File[] directories = getStagingDirectory().listFiles(File::isDirectory);
+        if (directories == null) {
+            return;
+        }
+        for (File directory : directories) {
+            File state = new File(directory, "upload.json");
+            if (!state.exists() || System.currentTimeMillis() - state.lastModified() > EXPIRY) {
+                log.info("Removing expired upload: {}", directory.getName());
+                delete(directory);
+                continue;
+            }
+            try (
+                    FileReader reader = new FileReader(state);
+            ) {
+                Upload upload = Constants.GSON.fromJson(reader, Upload.class);
+                upload.directory = directory;
+                upload.lastActivity = state.lastModified();
+                upload.files.values().forEach(f -> f.received = BitSet.valueOf(f.chunks));
+                uploads.put(upload.id, upload);
+            } catch (IOException e) {
+                log.error("Failed to load upload: {}", directory.getName(), e);
+            }
+        }
+        log.info("Loaded {} pending uploads", uploads.size());
+    }
+
+    /**
+     * Removes every upload which has not received a chunk within the expiry.
+     */
+    private void expire() {
+        long now = System.currentTimeMillis();
+        for (Upload upload : uploads.values()) {
+            synchronized (upload) {
+                if (now - upload.lastActivity > EXPIRY && uploads.remove(upload.id, upload)) {
+                    log.info("Removing expired upload: {}", upload.id);
+                    delete(upload.directory);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new upload.
+     *
+     * @param date      Date of log creation, as epoch seconds.
+     * @param chunkSize The size of every chunk but the last chunk of each file.
+     * @param sizes     Map of file name and file size.
+     * @return The new {@link Upload}.
+     * @throws MultipartStreamReader.SizeLimitException If the files are larger than the maximum upload size.
+     * @throws PendingLimitException                    If there are too many pending uploads.
+     */
+    public Upload create(long date, long chunkSize, Map<String, Long> sizes) throws IOException {
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("The chunk size must be between " + MIN_CHUNK_SIZE + " and " + MAX_CHUNK_SIZE + " bytes.");
+        }
+        if (!sizes.containsKey(LOG)) {
+            throw new IllegalArgumentException("The 'log' file has not been declared.");
+        }
+        if (sizes.containsKey(STATS) != sizes.containsKey(STATS_MAP)) {
+            throw new IllegalArgumentException("The 'stats' and 'stats_map' files must be declared together.");
+        }
+        Upload upload = new Upload();
+        upload.id = UUID.randomUUID().toString();
+        upload.date = date;
+        upload.chunkSize = chunkSize;
+        for (Map.Entry<String, Long> e : sizes.entrySet()) {
+            if (!e.getKey().equals(LOG) && !e.getKey().equals(STATS) && !e.getKey().equals(STATS_MAP)) {
+                throw new IllegalArgumentException("Unknown file: " + e.getKey());
+            }
+            if (e.getValue() == null || e.getValue() < 0) {
+                throw new IllegalArgumentException("Invalid size for file: " + e.getKey());
+            }
+            UploadFile file = new UploadFile();
+            file.size = e.getValue();
+            upload.files.put(e.getKey(), file);
+        }
+        long maxUploadSize = Cabinet.getInstance().getMaxUploadSize();
+        long size = 0;
+        for (UploadFile file : upload.files.values()) {
+            size += file.size;
+            if (size > maxUploadSize) {
+                throw new MultipartStreamReader.SizeLimitException(maxUploadSize);
+            }
+        }
+        upload.directory = new File(getStagingDirectory(), upload.id);
+        upload.lastActivity = System.currentTimeMillis();
+        synchronized (this) {
+            if (uploads.size() >= maxPending) {
+                throw new PendingLimitException();
+            }
+            Files.createDirectories(upload.directory.toPath());
+            saveState(upload);
+            uploads.put(upload.id, upload);
+        }
+        log.info("Created upload: {}", upload.id);
+        return upload;
+    }
+
+    /**
+     * Gets an upload by its id.
+     *
+     * @param id Id of upload.
+     * @return {@link Upload} if exists, null otherwise.
+     */
+    public Upload getUpload(String id) {
+        return uploads.get(id);
+    }
+
+    /**
+     * Writes a chunk of a file to the staging directory.
+     * The chunk is streamed in place through a fixed-size buffer while its checksum is computed. The chunk is marked
+     * as missing while it is written, so a chunk which turns out to be invalid has to be sent again.
+     *
+     * @param upload   {@link Upload}
+     * @param name     The name of the file.
+     * @param offset   The offset of the chunk.
+     * @param in       The chunk.
+     * @param checksum The hex-encoded SHA-256 checksum of the chunk.
+     */
+    public void writeChunk(Upload upload, String name, long offset, InputStream in, String checksum) throws IOException {
+        UploadFile file = upload.files.get(name);
+        if (file == null) {
+            throw new IllegalArgumentException("Unknown file: " + name);
+        }
+        if (offset < 0 || offset % upload.chunkSize != 0 || offset >= Math.max(1, file.size)) {
+            throw new IllegalArgumentException("The offset must be a multiple of the chunk size within the file.");
+        }
+        if (checksum == null) {
+            throw new IllegalArgumentException("The chunk checksum has not been set.");
+        }
+        long expected = Math.min(upload.chunkSize, file.size - offset);
+        int index = (int) (offset / upload.chunkSize);
+        synchronized (upload) {
+            if (file.received.get(index)) {
+                file.received.clear(index);
+                saveState(upload);
+            }
+        }
+        MessageDigest digest = sha256();
+        long received = 0;
+        try (
+                FileChannel channel = FileChannel.open(getPartFile(upload, name).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        ) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                received += read;
+                if (received > expected) {
+                    throw new IllegalArgumentException("Expected a chunk of " + expected + " bytes, but received more.");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, offset + received - bytes.remaining());
+                }
+            }
+            channel.force(false);
+        }
+        if (received != expected) {
+            throw new IllegalArgumentException("Expected a chunk of " + expected + " bytes, but received " + received + ".");
+        }
+        if (!checksum.equalsIgnoreCase(toHex(digest.digest()))) {
+            throw new IllegalArgumentException("The chunk checksum does not match.");
+        }
+        synchronized (upload) {
+            file.received.set(index);
+            upload.lastActivity = System.currentTimeMillis();
+            saveState(upload);
+        }
+    }
+
+    /**
+     * Completes an upload, handing the assembled files to the {@link LogHandler}.
+     *
+     * @param upload {@link Upload}
+     * @return The new {@link Log}.
+     */
+    public Log complete(Upload upload) throws IOException {
+        // The upload stays pending if the pipeline is full, so it can be completed later
+        IngestPipeline.Reservation reservation = LogHandler.getInstance().reserve();
+        synchronized (upload) {
+            if (uploads.remove(upload.id) == null) {
+                reservation.cancel();
+                throw new IllegalStateException("The upload has already been completed.");
+            }
+            for (Map.Entry<String, UploadFile> e : upload.files.entrySet()) {
+                if (!e.getValue().isComplete(upload.chunkSize)) {
+                    uploads.put(upload.id, upload);
+                    reservation.cancel();
+                    throw new IllegalStateException("The '" + e.getKey() + "' file is missing chunks.");
+                }
+            }
+            // Assemble the final files
+            Map<String, File> assembled = new LinkedHashMap<>();
+            try {
+                for (String name : upload.files.keySet()) {
+                    File part = getPartFile(upload, name);
+                    File target = new File(upload.directory, name);
+                    if (!part.exists()) {
+                        Files.createFile(part.toPath());
+                    }
+                    Files.move(part.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                    assembled.put(name, target);
+                }
+                // The staging directory is removed once the log handler has moved the files
+                Files.deleteIfExists(new File(upload.directory, "upload.json").toPath());
+            } catch (IOException e) {
+                reservation.cancel();
+                throw e;
+            }
+            LocalDateTime date = Instant.ofEpochSecond(upload.date).atOffset(ZoneOffset.UTC).toLocalDateTime();
+            Log log = LogHandler.getInstance().postNewLog(reservation, date, assembled.get(LOG), assembled.get(STATS), assembled.get(STATS_MAP));
+            UploadHandler.log.info("Completed upload {} as log: {}", upload.id, log.getId());
+            return log;
+        }
+    }
+
+    private File getPartFile(Upload upload, String name) {
+        return new File(upload.directory, name + ".part");
+    }
+
+    private void saveState(Upload upload) throws IOException {
+        upload.files.values().forEach(f -> f.chunks = f.received.toLongArray());
+        File temp = new File(upload.directory, "upload.json.tmp");
+        try (
+                FileWriter writer = new FileWriter(temp);
+        ) {
+            Constants.GSON.toJson(upload, writer);
+        }
+        Files.move(temp.toPath(), new File(upload.directory, "upload.json").toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void delete(File directory) {
+        try (
+                Stream<java.nio.file.Path> paths = Files.walk(directory.toPath());
+        ) {
+            paths.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            log.warn("Failed to delete directory: {}", directory.getName(), e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * A pending upload.
+     */
+    public static class Upload {
+        @Getter
+        private String id;
+        private long date;
+        private long chunkSize;
+        private Map<String, UploadFile> files = new LinkedHashMap<>();
+        private transient File directory;
+        private transient long lastActivity;
+
+        /**
+         * @return {@link JsonObject} describing the upload and the received byte ranges of each file.
+         */
+        public synchronized JsonObject toJson() {
+            JsonObject object = new JsonObject();
+            object.addProperty("id", id);
+            object.addProperty("chunkSize", chunkSize);
+            JsonObject filesObject = new JsonObject();
+            files.forEach((name, file) -> {
+                JsonObject fileObject = new JsonObject();
+                fileObject.addProperty("size", file.size);
+                fileObject.add("received", file.getRanges(chunkSize, true));
+                fileObject.add("missing", file.getRanges(chunkSize, false));
+                filesObject.add(name, fileObject);
+            });
+            object.add("files", filesObject);
+            return object;
+        }
+    }
+
+    /**
+     * A file of a pending upload.
+     */
+    private static class UploadFile {
+        private long size;
+        private long[] chunks = new long[0];
+        private transient BitSet received = new BitSet();
+
+        private int getChunkCount(long chunkSize) {
+            return (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        }
+
+        private boolean isComplete(long chunkSize) {
+            return size == 0 || received.cardinality() == getChunkCount(chunkSize);
+        }
+
+        private JsonArray getRanges(long chunkSize, boolean state) {
+            JsonArray ranges = new JsonArray();
+            if (size == 0) {
+                return ranges;
+            }
+            int count = getChunkCount(chunkSize);
+            int start = state ? received.nextSetBit(0) : received.nextClearBit(0);
+            while (start >= 0 && start < count) {
+                int end = Math.min(count, state ? received.nextClearBit(start) : received.nextSetBit(start) < 0 ? count : received.nextSetBit(start));
+                JsonArray range = new JsonArray();
+                range.add(start * chunkSize);
+                range.add(Math.min(size, end * chunkSize));
+                ranges.add(range);
+                start = state ? received.nextSetBit(end) : received.nextClearBit(end);
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * Thrown when a new upload is rejected because there are too many pending uploads.
+     */
+    public static class PendingLimitException extends RuntimeException {
+        public PendingLimitException() {
+            super("There are too many pending uploads. Complete one, or try again later.");
+        }
+    }
+
+    /**
+     * The body of a new upload request.
+     */
+    public static class Request {
+        public Long chunkSize;
+        public Map<String, Long> files;
+
+        /**
+         * Validates the request.
+         */
+        public void validate() {
+            Objects.requireNonNull(chunkSize, "The 'chunkSize' field has not been set.");
+            Objects.requireNonNull(files, "The 'files' field has not been set.");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.entities;
+
+import lombok.Data;
+
+/**
+ * Represents the summary of every sample of a single statistic in a log
+ *
+ * @author Noah Husby
+ */
+@Data
+public class ChannelSummary {
+    private long count = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private long last = 0;
+    private double mean = 0;
+    private long firstTimestamp = 0;
+    private long lastTimestamp = 0;
+
+    /**
+     * Adds a sample to the summary. Samples are expected in timestamp order.
+     *
+     * @param timestamp The timestamp of the sample.
+     * @param value     The value of the sample.
+     */
+    public void post(long timestamp, long value) {
+        if (count == 0) {
+            firstTimestamp = timestamp;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        mean += (value - mean) / count;
+        last = value;
+        lastTimestamp = timestamp;
+    }
+
+    /**
+     * Merges the summary of samples which came after the samples of this summary.
+     *
+     * @param other {@link ChannelSummary}
+     */
+    public void merge(ChannelSummary other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            firstTimestamp = other.firstTimestamp;
+        }
+        long total = count + other.count;
+        mean += (other.mean - mean) * other.count / total;
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        last = other.last;
+        lastTimestamp = other.lastTimestamp;
+    }
+}
@@ -24,6 +24,7 @@ import com.google.gson.annotations.Expose;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * Represents the metadata of a log
@@ -40,4 +41,10 @@ public class Log {
     private final LocalDateTime uploadDate;
     private String size = "0kb";
     private boolean doesSheetExist = false;
+    private boolean live = false;
+    /**
+     * Summary of each statistic by name, or null if the statistics of the log have not been processed.
+     */
+    @Detail
+    private Map<String, ChannelSummary> summaries;
 }
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sidecar index of the line offsets of a plain-text log file.
+ * <p>
+ * The index is a flat array of big-endian longs, where entry {@code i} is the byte offset of the start of line
+ * {@code i}. Any range of lines can therefore be located with a single positional read of the index.
+ *
+ * @author Noah Husby
+ */
+@UtilityClass
+public class LineIndex {
+
+    public static final String EXTENSION = ".lines";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Builds the line index of a plain-text log file.
+     * The index is written to a temporary file first, and then atomically moved in place.
+     *
+     * @param textFile  The plain-text log file.
+     * @param indexFile The destination index file.
+     * @throws IOException If the log cannot be read or the index cannot be written.
+     */
+    public static void write(File textFile, File indexFile) throws IOException {
+        File temp = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+        try (
+                FileChannel channel = FileChannel.open(textFile.toPath(), StandardOpenOption.READ);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE));
+        ) {
+            long size = channel.size();
+            if (size > 0) {
+                out.writeLong(0);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = 0;
+            while (position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                byte[] bytes = buffer.array();
+                for (int i = 0; i < read; i++) {
+                    long next = position + i + 1;
+                    if (bytes[i] == '\n' && next < size) {
+                        out.writeLong(next);
+                    }
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gets the amount of lines in an index.
+     *
+     * @param indexFile The index file.
+     * @return The amount of lines.
+     */
+    public static long getLineCount(File indexFile) {
+        return indexFile.length() / Long.BYTES;
+    }
+
+    /**
+     * Reads a range of lines using the line index.
+     *
+     * @param textFile  The plain-text log file.
+     * @param indexFile The index file.
+     * @param from      The first line to read.
+     * @param count     The maximum amount of lines to read.
+     * @return The lines, without their line breaks.
+     * @throws IOException If the files cannot be read.
+     */
+    public static List<String> readLines(File textFile, File indexFile, long from, int count) throws IOException {
+        List<String> lines = new ArrayList<>();
+        long total = getLineCount(indexFile);
+        if (from >= total || count <= 0) {
+            return lines;
+        }
+        int amount = (int) Math.min(count, total - from);
+        long[] offsets = new long[amount + 1];
+        try (
+                FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+                FileChannel text = FileChannel.open(textFile.toPath(), StandardOpenOption.READ);
+        ) {
+            // Read the offsets of the requested lines, and of the line following them
+            ByteBuffer offsetBuffer = ByteBuffer.allocate((int) Math.min(amount + 1, total - from) * Long.BYTES);
+            readFully(index, offsetBuffer, from * Long.BYTES);
+            offsetBuffer.flip();
+            for (int i = 0; i <= amount; i++) {
+                offsets[i] = offsetBuffer.hasRemaining() ? offsetBuffer.getLong() : text.size();
+            }
+            ByteBuffer textBuffer = ByteBuffer.allocate((int) (offsets[amount] - offsets[0]));
+            readFully(text, textBuffer, offsets[0]);
+            byte[] bytes = textBuffer.array();
+            for (int i = 0; i < amount; i++) {
+                int start = (int) (offsets[i] - offsets[0]);
+                int end = (int) Math.min(bytes.length, offsets[i + 1] - offsets[0]);
+                while (end > start && (bytes[end - 1] == '\n' || bytes[end - 1] == '\r')) {
+                    end--;
+                }
+                lines.add(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over the lines of a plain-text log file.
+ * <p>
+ * A file starts with a header, followed by every token in sorted order. Each token is followed by the byte offsets of
+ * the lines it appears in, stored as a varint count and varint deltas. Writing an index returns the position of every
+ * token's offsets, so they can be read directly without scanning the file.
+ *
+ * @author Noah Husby
+ */
+@UtilityClass
+public class LogTextIndex {
+
+    public static final String EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x43424958;
+    private static final short VERSION = 1;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * Splits text into lower-case tokens of letters, digits and underscores.
+     * Purely numeric tokens are left out, as timestamps and values would otherwise flood the index.
+     *
+     * @param text The text.
+     * @return The distinct tokens, in order of first appearance.
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        forEachToken(text, (start, end) -> tokens.add(text.substring(start, end).toLowerCase()));
+        return tokens;
+    }
+
+    /**
+     * Finds the character ranges of every token in a line.
+     *
+     * @param line The line.
+     * @return List of ranges, as an inclusive start and exclusive end.
+     */
+    public static List<int[]> tokenRanges(String line) {
+        List<int[]> ranges = new ArrayList<>();
+        forEachToken(line, (start, end) -> ranges.add(new int[]{start, end}));
+        return ranges;
+    }
+
+    private static void forEachToken(String text, TokenConsumer consumer) {
+        int start = -1;
+        boolean numeric = true;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                if (start < 0) {
+                    start = i;
+                    numeric = true;
+                }
+                numeric &= Character.isDigit(c);
+            } else if (start >= 0) {
+                int length = i - start;
+                if (!numeric && length >= MIN_TOKEN_LENGTH && length <= MAX_TOKEN_LENGTH) {
+                    consumer.accept(start, i);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Builds the index of a plain-text log file.
+     *
+     * @param textFile  The plain-text log file.
+     * @param indexFile The destination index file.
+     * @return Map of token and the position of its line offsets within the index file.
+     * @throws IOException If the log cannot be read or the index cannot be written.
+     */
+    public static Map<String, Long> write(File textFile, File indexFile) throws IOException {
+        Map<String, long[]> lines = new HashMap<>();
+        try (
+                InputStream in = new BufferedInputStream(new FileInputStream(textFile), 1 << 16);
+        ) {
+            byte[] line = new byte[256];
+            int length = 0;
+            long lineStart = 0;
+            long position = 0;
+            int b;
+            while (true) {
+                b = in.read();
+                if (b == '\n' || b < 0) {
+                    if (length > 0) {
+                        long offset = lineStart;
+                        for (String token : tokenize(new String(line, 0, length, StandardCharsets.UTF_8))) {
+                            long[] offsets = lines.computeIfAbsent(token, t -> new long[]{0, 0, 0, 0});
+                            int count = (int) offsets[0];
+                            if (count + 1 == offsets.length) {
+                                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                                lines.put(token, offsets);
+                            }
+                            offsets[count + 1] = offset;
+                            offsets[0] = count + 1;
+                        }
+                    }
+                    if (b < 0) {
+                        break;
+                    }
+                    position++;
+                    lineStart = position;
+                    length = 0;
+                    continue;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[length++] = (byte) b;
+                position++;
+            }
+        }
+
+        Map<String, Long> positions = new HashMap<>();
+        try (
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 1 << 16));
+        ) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(lines.size());
+            for (Map.Entry<String, long[]> e : new TreeMap<>(lines).entrySet()) {
+                out.writeUTF(e.getKey());
+                positions.put(e.getKey(), (long) out.size());
+                long[] offsets = e.getValue();
+                int count = (int) offsets[0];
+                writeVarLong(out, count);
+                long previous = 0;
+                for (int i = 1; i <= count; i++) {
+                    writeVarLong(out, offsets[i] - previous);
+                    previous = offsets[i];
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Reads the position of every token's line offsets from an existing index file.
+     *
+     * @param indexFile The index file.
+     * @return Map of token and the position of its line offsets within the index file.
+     * @throws IOException If the file cannot be read, or is not an index file.
+     */
+    public static Map<String, Long> readDictionary(File indexFile) throws IOException {
+        try (
+                CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(indexFile), 1 << 16));
+        ) {
+            DataInputStream in = new DataInputStream(counter);
+            readHeader(in, indexFile);
+            int tokens = in.readInt();
+            Map<String, Long> positions = new HashMap<>(tokens * 2);
+            for (int i = 0; i < tokens; i++) {
+                positions.put(in.readUTF(), counter.position);
+                long count = readVarLong(in);
+                for (long j = 0; j < count; j++) {
+                    readVarLong(in);
+                }
+            }
+            return positions;
+        }
+    }
+
+    /**
+     * Reads the line offsets of a token.
+     *
+     * @param indexFile The index file.
+     * @param position  The position of the token's line offsets, as returned by {@link #write(File, File)}.
+     * @return The byte offsets of the lines the token appears in, in ascending order.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long[] readLineOffsets(File indexFile, long position) throws IOException {
+        try (
+                FileInputStream fis = new FileInputStream(indexFile);
+        ) {
+            fis.getChannel().position(position);
+            InputStream in = new BufferedInputStream(fis, 4096);
+            int count = (int) readVarLong(in);
+            long[] offsets = new long[count];
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += readVarLong(in);
+                offsets[i] = previous;
+            }
+            return offsets;
+        }
+    }
+
+    /**
+     * Reads a single line of a plain-text log file.
+     *
+     * @param textFile  The plain-text log file.
+     * @param offset    The byte offset of the start of the line.
+     * @param maxLength The maximum amount of bytes to read.
+     * @return The line, without its line break.
+     * @throws IOException If the file cannot be read.
+     */
+    public static String readLine(File textFile, long offset, int maxLength) throws IOException {
+        try (
+                RandomAccessFile file = new RandomAccessFile(textFile, "r");
+        ) {
+            file.seek(offset);
+            byte[] bytes = new byte[(int) Math.min(maxLength, Math.max(0, file.length() - offset))];
+            file.readFully(bytes);
+            int length = 0;
+            while (length < bytes.length && bytes[length] != '\n') {
+                length++;
+            }
+            if (length > 0 && bytes[length - 1] == '\r') {
+                length--;
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void readHeader(DataInputStream in, File file) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a log index file: " + file.getName());
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported log index version: " + version);
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of log index.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in log index.");
+    }
+
+    private interface TokenConsumer {
+        void accept(int start, int end);
+    }
+
+    /**
+     * An input stream which counts the bytes read through it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long position = 0;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+}
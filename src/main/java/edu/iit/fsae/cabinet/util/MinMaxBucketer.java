@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+/**
+ * Downsamples a series by splitting time into equal buckets, and keeping the minimum and maximum sample of each bucket.
+ * <p>
+ * Samples must be posted in time order. The kept samples of a bucket are emitted in time order once a sample of a later
+ * bucket arrives, or when the bucketer is flushed, so at most two samples are emitted per bucket.
+ *
+ * @author Noah Husby
+ */
+public class MinMaxBucketer {
+    private final long start;
+    private final long width;
+    private final PointConsumer consumer;
+    private long bucket = Long.MIN_VALUE;
+    private long minTimestamp;
+    private long minValue;
+    private long maxTimestamp;
+    private long maxValue;
+
+    /**
+     * @param start    The start of the first bucket.
+     * @param width    The width of each bucket.
+     * @param consumer Receives the kept samples.
+     */
+    public MinMaxBucketer(long start, long width, PointConsumer consumer) {
+        this.start = start;
+        this.width = width;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Posts a sample.
+     *
+     * @param timestamp The timestamp of the sample.
+     * @param value     The value of the sample.
+     */
+    public void post(long timestamp, long value) {
+        long bucket = Math.floorDiv(timestamp - start, width);
+        if (bucket != this.bucket) {
+            flush();
+            this.bucket = bucket;
+            minTimestamp = maxTimestamp = timestamp;
+            minValue = maxValue = value;
+            return;
+        }
+        if (value < minValue) {
+            minValue = value;
+            minTimestamp = timestamp;
+        }
+        if (value > maxValue) {
+            maxValue = value;
+            maxTimestamp = timestamp;
+        }
+    }
+
+    /**
+     * Emits the kept samples of the current bucket.
+     */
+    public void flush() {
+        if (bucket == Long.MIN_VALUE) {
+            return;
+        }
+        if (minTimestamp == maxTimestamp) {
+            consumer.accept(bucket, minTimestamp, minValue);
+        } else if (minTimestamp < maxTimestamp) {
+            consumer.accept(bucket, minTimestamp, minValue);
+            consumer.accept(bucket, maxTimestamp, maxValue);
+        } else {
+            consumer.accept(bucket, maxTimestamp, maxValue);
+            consumer.accept(bucket, minTimestamp, minValue);
+        }
+        bucket = Long.MIN_VALUE;
+    }
+
+    /**
+     * Receives the kept samples of each bucket.
+     */
+    @FunctionalInterface
+    public interface PointConsumer {
+        /**
+         * @param bucket    The index of the bucket, from the start of the first bucket.
+         * @param timestamp The timestamp of the sample.
+         * @param value     The value of the sample.
+         */
+        void accept(long bucket, long timestamp, long value);
+    }
+}
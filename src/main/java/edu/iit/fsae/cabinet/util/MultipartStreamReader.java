@@ -0,0 +1,281 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A streaming reader for {@code multipart/form-data} request bodies.
+ * <p>
+ * Each part is written directly to the file chosen by a {@link PartTarget} through a single fixed-size buffer, so the
+ * memory used by an upload does not depend on the size of its files.
+ *
+ * @author Noah Husby
+ */
+public class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_HEADER_SIZE = 8192;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final long maxSize;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private long read = 0;
+    private boolean eof = false;
+
+    /**
+     * @param in       The request body.
+     * @param boundary The multipart boundary.
+     * @param maxSize  The maximum amount of bytes to read from the request body.
+     */
+    public MultipartStreamReader(InputStream in, String boundary, long maxSize) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the boundary of a multipart content type.
+     *
+     * @param contentType The content type of the request.
+     * @return The boundary, or null if the content type is not {@code multipart/form-data}.
+     */
+    public static String getBoundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/form-data")) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            parameter = parameter.trim();
+            if (parameter.toLowerCase().startsWith("boundary=")) {
+                String boundary = parameter.substring(9);
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary.isEmpty() ? null : boundary;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads every part of the body, writing each to the file chosen by the target.
+     *
+     * @param target {@link PartTarget}
+     * @throws IOException              If the body cannot be read or a part cannot be written.
+     * @throws IllegalArgumentException If the body is malformed.
+     * @throws SizeLimitException       If the body is larger than the maximum size.
+     */
+    public void read(PartTarget target) throws IOException {
+        // The first boundary is not preceded by a line break
+        if (!skipUntil(delimiter, 2)) {
+            throw new IllegalArgumentException("The multipart body has no boundary.");
+        }
+        while (true) {
+            if (!ensure(2)) {
+                throw new IllegalArgumentException("The multipart body ended unexpectedly.");
+            }
+            if (buffer[position] == '-' && buffer[position + 1] == '-') {
+                return;
+            }
+            String headers = readHeaders();
+            String name = getDispositionParameter(headers, "name");
+            File file = name == null ? null : target.getFile(name, getDispositionParameter(headers, "filename"));
+            if (file == null) {
+                if (!skipUntil(delimiter, 0)) {
+                    throw new IllegalArgumentException("The multipart body ended unexpectedly.");
+                }
+                continue;
+            }
+            try (
+                    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            ) {
+                if (!copyUntilDelimiter(channel)) {
+                    throw new IllegalArgumentException("The multipart body ended unexpectedly.");
+                }
+            }
+        }
+    }
+
+    private String readHeaders() throws IOException {
+        // Skip the line break which follows the boundary
+        if (!ensure(2) || buffer[position] != '\r' || buffer[position + 1] != '\n') {
+            throw new IllegalArgumentException("Malformed multipart boundary.");
+        }
+        position += 2;
+        while (true) {
+            int end = indexOf(new byte[]{'\r', '\n', '\r', '\n'}, position, limit);
+            if (end >= 0) {
+                String headers = new String(buffer, position, end - position, StandardCharsets.UTF_8);
+                position = end + 4;
+                return headers;
+            }
+            if (limit - position >= MAX_HEADER_SIZE || !fill()) {
+                throw new IllegalArgumentException("Malformed multipart headers.");
+            }
+        }
+    }
+
+    private boolean copyUntilDelimiter(FileChannel channel) throws IOException {
+        while (true) {
+            int index = indexOf(delimiter, position, limit);
+            if (index >= 0) {
+                write(channel, index);
+                position = index + delimiter.length;
+                return true;
+            }
+            // Keep enough bytes to match a delimiter spanning two reads
+            write(channel, Math.max(position, limit - delimiter.length + 1));
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    private boolean skipUntil(byte[] pattern, int skipPrefix) throws IOException {
+        if (skipPrefix > 0 && ensure(pattern.length - skipPrefix) && startsWith(pattern, skipPrefix)) {
+            position += pattern.length - skipPrefix;
+            return true;
+        }
+        while (true) {
+            int index = indexOf(pattern, position, limit);
+            if (index >= 0) {
+                position = index + pattern.length;
+                return true;
+            }
+            position = Math.max(position, limit - pattern.length + 1);
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    private boolean startsWith(byte[] pattern, int from) {
+        for (int i = from; i < pattern.length; i++) {
+            if (buffer[position + i - from] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(FileChannel channel, int end) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, position, end - position);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        position = end;
+    }
+
+    private boolean ensure(int bytes) throws IOException {
+        while (limit - position < bytes) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        int count = in.read(buffer, limit, buffer.length - limit);
+        if (count < 0) {
+            eof = true;
+            return false;
+        }
+        read += count;
+        if (read > maxSize) {
+            throw new SizeLimitException(maxSize);
+        }
+        limit += count;
+        return true;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        int last = to - pattern.length;
+        search:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer[i + j] != pattern[j]) {
+                    continue search;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String getDispositionParameter(String headers, String parameter) {
+        for (String header : headers.split("\r\n")) {
+            int colon = header.indexOf(':');
+            if (colon < 0 || !header.substring(0, colon).trim().equalsIgnoreCase("Content-Disposition")) {
+                continue;
+            }
+            for (String token : header.substring(colon + 1).split(";")) {
+                token = token.trim();
+                if (token.startsWith(parameter + "=")) {
+                    String value = token.substring(parameter.length() + 1);
+                    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                        value = value.substring(1, value.length() - 1);
+                    }
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Chooses the file a part is written to.
+     */
+    public interface PartTarget {
+        /**
+         * @param name     The name of the part.
+         * @param fileName The file name of the part, or null if it is a plain field.
+         * @return The file to write the part to, or null to skip the part.
+         */
+        File getFile(String name, String fileName) throws IOException;
+    }
+
+    /**
+     * Thrown when a body is larger than the maximum size.
+     */
+    public static class SizeLimitException extends IOException {
+        public SizeLimitException(long maxSize) {
+            super("The upload exceeds the maximum size of " + Util.humanReadableBytes(maxSize) + ".");
+        }
+    }
+}
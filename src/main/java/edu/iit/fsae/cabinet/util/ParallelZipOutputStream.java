@@ -0,0 +1,547 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A zip writer which deflates entries in independent blocks on a worker pool.
+ * <p>
+ * Deflated entries are split into blocks, and every block but the last is compressed with a sync flush, so the
+ * compressed blocks can simply be concatenated. Each block is primed with the end of the previous block as its
+ * dictionary, which keeps the compression ratio close to a single-threaded deflate. Compressed blocks are written in
+ * order as they complete, with a bounded amount of blocks in flight, and the blocks of consecutive entries are
+ * compressed at the same time. Entries carry a data descriptor, so the archive is written in a single pass and can be
+ * streamed. Stored entries are written from files, so their checksum is computed up front. ZIP64 records are written
+ * when an entry or the archive outgrows the classic format.
+ *
+ * @author Noah Husby
+ */
+public class ParallelZipOutputStream implements Closeable {
+
+    public static final int BLOCK_SIZE = 1 << 20;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRY_LIMIT = 0xFFFF;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private final CountingOutputStream out;
+    private final Executor executor;
+    private final int level;
+    private final int maxBlocksInFlight;
+    private final Set<String> storedExtensions;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Deque<Segment> pending = new ArrayDeque<>();
+    private int blocksInFlight = 0;
+    private final int dosTime;
+    private final int dosDate;
+    private EntryOutputStream current;
+
+    /**
+     * @param out         The stream to write the archive to.
+     * @param executor    The executor which deflates blocks.
+     * @param level       The deflate level, from 0 to 9, or -1 for the default level.
+     * @param parallelism The amount of blocks to deflate at once.
+     */
+    public ParallelZipOutputStream(OutputStream out, Executor executor, int level, int parallelism) {
+        this(out, executor, level, parallelism, Collections.emptySet());
+    }
+
+    /**
+     * @param out              The stream to write the archive to.
+     * @param executor         The executor which deflates blocks.
+     * @param level            The deflate level, from 0 to 9, or -1 for the default level.
+     * @param parallelism      The amount of blocks to deflate at once.
+     * @param storedExtensions The lower-case extensions of files which {@link #putFile(String, File)} stores rather than deflates.
+     */
+    public ParallelZipOutputStream(OutputStream out, Executor executor, int level, int parallelism, Set<String> storedExtensions) {
+        this.out = new CountingOutputStream(out);
+        this.executor = executor;
+        this.level = level;
+        this.maxBlocksInFlight = Math.max(1, parallelism) * 2;
+        this.storedExtensions = storedExtensions;
+        LocalDateTime now = LocalDateTime.now();
+        dosTime = (now.getHour() << 11) | (now.getMinute() << 5) | (now.getSecond() / 2);
+        dosDate = ((now.getYear() - 1980) << 9) | (now.getMonthValue() << 5) | now.getDayOfMonth();
+    }
+
+    /**
+     * Writes a file as an entry, which is stored if its extension is one of the stored extensions, and deflated otherwise.
+     * Deflating is skipped as well at level 0.
+     *
+     * @param name The name of the entry.
+     * @param file The file.
+     */
+    public void putFile(String name, File file) throws IOException {
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+        if (level == Deflater.NO_COMPRESSION || storedExtensions.contains(extension)) {
+            putStored(name, file);
+        } else {
+            putDeflated(name, file);
+        }
+    }
+
+    /**
+     * Writes a file as a stored, uncompressed entry.
+     *
+     * @param name The name of the entry.
+     * @param file The file.
+     */
+    public void putStored(String name, File file) throws IOException {
+        closeEntry();
+        // Stored entries are written directly, so every queued block has to be written first
+        while (!pending.isEmpty()) {
+            writeNextSegment();
+        }
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        long size = 0;
+        try (
+                InputStream in = new FileInputStream(file);
+        ) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                crc.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        Entry entry = new Entry(name, METHOD_STORED, size >= ZIP64_LIMIT);
+        entry.offset = out.count;
+        entry.crc = crc.getValue();
+        entry.size = size;
+        entry.compressedSize = size;
+        writeLocalHeader(entry);
+        long copied = Files.copy(file.toPath(), out);
+        if (copied != size) {
+            throw new IOException("File changed while being archived: " + file.getName());
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Writes a file as a deflated entry.
+     *
+     * @param name The name of the entry.
+     * @param file The file.
+     */
+    public void putDeflated(String name, File file) throws IOException {
+        try (
+                OutputStream os = putDeflated(name, file.length());
+        ) {
+            Files.copy(file.toPath(), os);
+        }
+    }
+
+    /**
+     * Starts a deflated entry. The entry is finished when the returned stream is closed, or the next entry is started.
+     * The compressed entry may still be pending when the stream is closed, and is written as the following entries are.
+     *
+     * @param name     The name of the entry.
+     * @param sizeHint The expected uncompressed size, used to decide if the entry needs ZIP64 sizes.
+     * @return The stream to write the uncompressed contents of the entry to.
+     */
+    public OutputStream putDeflated(String name, long sizeHint) throws IOException {
+        closeEntry();
+        Entry entry = new Entry(name, METHOD_DEFLATED, sizeHint >= ZIP64_LIMIT / 2);
+        pending.add(new Segment(entry, Segment.HEADER, null));
+        current = new EntryOutputStream(entry);
+        return current;
+    }
+
+    /**
+     * Finishes the archive by writing the central directory, then closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeEntry();
+            while (!pending.isEmpty()) {
+                writeNextSegment();
+            }
+            writeCentralDirectory();
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void closeEntry() throws IOException {
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void submitBlock(Entry entry, CompletableFuture<byte[]> block) throws IOException {
+        pending.add(new Segment(entry, Segment.BLOCK, block));
+        blocksInFlight++;
+        while (blocksInFlight >= maxBlocksInFlight || (!pending.isEmpty() && pending.peek().isDone())) {
+            writeNextSegment();
+        }
+    }
+
+    private void writeNextSegment() throws IOException {
+        Segment segment = pending.poll();
+        Entry entry = segment.entry;
+        switch (segment.type) {
+            case Segment.HEADER:
+                entry.offset = out.count;
+                writeLocalHeader(entry);
+                break;
+            case Segment.BLOCK:
+                byte[] data;
+                try {
+                    data = segment.block.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while compressing entry.");
+                } catch (ExecutionException e) {
+                    throw new IOException("Failed to compress entry.", e.getCause());
+                } finally {
+                    blocksInFlight--;
+                }
+                out.write(data);
+                entry.compressedSize += data.length;
+                break;
+            default:
+                if (!entry.zip64 && entry.compressedSize >= ZIP64_LIMIT) {
+                    throw new IOException("Entry exceeded the expected size: " + new String(entry.name, StandardCharsets.UTF_8));
+                }
+                writeDescriptor(entry);
+                entries.add(entry);
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        boolean descriptor = entry.method == METHOD_DEFLATED;
+        writeInt(0x04034b50);
+        writeShort(entry.zip64 ? 45 : 20);
+        writeShort(FLAG_UTF8 | (descriptor ? FLAG_DESCRIPTOR : 0));
+        writeShort(entry.method);
+        writeShort(dosTime);
+        writeShort(dosDate);
+        writeInt(descriptor ? 0 : entry.crc);
+        writeInt(entry.zip64 ? ZIP64_LIMIT : descriptor ? 0 : entry.compressedSize);
+        writeInt(entry.zip64 ? ZIP64_LIMIT : descriptor ? 0 : entry.size);
+        writeShort(entry.name.length);
+        writeShort(entry.zip64 ? 20 : 0);
+        out.write(entry.name);
+        if (entry.zip64) {
+            writeShort(0x0001);
+            writeShort(16);
+            writeLong(descriptor ? 0 : entry.size);
+            writeLong(descriptor ? 0 : entry.compressedSize);
+        }
+    }
+
+    private void writeDescriptor(Entry entry) throws IOException {
+        writeInt(0x08074b50);
+        writeInt(entry.crc);
+        if (entry.zip64) {
+            writeLong(entry.compressedSize);
+            writeLong(entry.size);
+        } else {
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long start = out.count;
+        for (Entry entry : entries) {
+            boolean zip64 = entry.zip64 || entry.offset >= ZIP64_LIMIT;
+            writeInt(0x02014b50);
+            writeShort(45);
+            writeShort(zip64 ? 45 : 20);
+            writeShort(FLAG_UTF8 | (entry.method == METHOD_DEFLATED ? FLAG_DESCRIPTOR : 0));
+            writeShort(entry.method);
+            writeShort(dosTime);
+            writeShort(dosDate);
+            writeInt(entry.crc);
+            writeInt(zip64 ? ZIP64_LIMIT : entry.compressedSize);
+            writeInt(zip64 ? ZIP64_LIMIT : entry.size);
+            writeShort(entry.name.length);
+            writeShort(zip64 ? 28 : 0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(0);
+            writeInt(zip64 ? ZIP64_LIMIT : entry.offset);
+            out.write(entry.name);
+            if (zip64) {
+                writeShort(0x0001);
+                writeShort(24);
+                writeLong(entry.size);
+                writeLong(entry.compressedSize);
+                writeLong(entry.offset);
+            }
+        }
+        long end = out.count;
+        long size = end - start;
+        if (entries.size() >= ZIP64_ENTRY_LIMIT || start >= ZIP64_LIMIT || size >= ZIP64_LIMIT) {
+            writeInt(0x06064b50);
+            writeLong(44);
+            writeShort(45);
+            writeShort(45);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries.size());
+            writeLong(entries.size());
+            writeLong(size);
+            writeLong(start);
+            writeInt(0x07064b50);
+            writeInt(0);
+            writeLong(end);
+            writeInt(1);
+        }
+        writeInt(0x06054b50);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(entries.size(), ZIP64_ENTRY_LIMIT));
+        writeShort(Math.min(entries.size(), ZIP64_ENTRY_LIMIT));
+        writeInt(Math.min(size, ZIP64_LIMIT));
+        writeInt(Math.min(start, ZIP64_LIMIT));
+        writeShort(0);
+    }
+
+    private byte[] deflate(byte[] input, int length, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input, 0, length);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[1 << 16];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    bytes.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // A sync flush ends the block on a byte boundary, so the next block can be appended directly
+                int written;
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    bytes.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+            return bytes.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & 0xFFFFFFFFL);
+        writeInt(value >>> 32);
+    }
+
+    /**
+     * An entry of the archive.
+     */
+    private static class Entry {
+        private final byte[] name;
+        private final int method;
+        private final boolean zip64;
+        private long offset;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        private Entry(String name, int method, boolean zip64) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.method = method;
+            this.zip64 = zip64;
+        }
+    }
+
+    /**
+     * A pending part of a deflated entry, which is written once every segment before it has been written.
+     */
+    private static class Segment {
+        private static final int HEADER = 0;
+        private static final int BLOCK = 1;
+        private static final int DESCRIPTOR = 2;
+
+        private final Entry entry;
+        private final int type;
+        private final CompletableFuture<byte[]> block;
+
+        private Segment(Entry entry, int type, CompletableFuture<byte[]> block) {
+            this.entry = entry;
+            this.type = type;
+            this.block = block;
+        }
+
+        private boolean isDone() {
+            return block == null || block.isDone();
+        }
+    }
+
+    /**
+     * The stream of a deflated entry, which hands full blocks to the executor.
+     */
+    private class EntryOutputStream extends OutputStream {
+        private final Entry entry;
+        private final CRC32 crc = new CRC32();
+        private byte[] block = new byte[BLOCK_SIZE];
+        private int length = 0;
+        private byte[] dictionary = null;
+        private long size = 0;
+        private boolean closed = false;
+
+        private EntryOutputStream(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("The entry has been closed.");
+            }
+            crc.update(b, off, len);
+            size += len;
+            while (len > 0) {
+                int n = Math.min(len, block.length - length);
+                System.arraycopy(b, off, block, length, n);
+                length += n;
+                off += n;
+                len -= n;
+                if (length == block.length) {
+                    submit(false);
+                }
+            }
+        }
+
+        private void submit(boolean last) throws IOException {
+            byte[] input = block;
+            int inputLength = length;
+            byte[] inputDictionary = dictionary;
+            dictionary = nextDictionary(inputDictionary, input, inputLength);
+            block = last ? null : new byte[BLOCK_SIZE];
+            length = 0;
+            submitBlock(entry, CompletableFuture.supplyAsync(() -> deflate(input, inputLength, inputDictionary, last), executor));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = null;
+            if (!entry.zip64 && size >= ZIP64_LIMIT) {
+                throw new IOException("Entry exceeded the expected size: " + new String(entry.name, StandardCharsets.UTF_8));
+            }
+            submit(true);
+            entry.crc = crc.getValue();
+            entry.size = size;
+            pending.add(new Segment(entry, Segment.DESCRIPTOR, null));
+        }
+    }
+
+    private static byte[] nextDictionary(byte[] previous, byte[] input, int length) {
+        if (length >= DICTIONARY_SIZE || previous == null) {
+            return Arrays.copyOfRange(input, Math.max(0, length - DICTIONARY_SIZE), length);
+        }
+        int keep = Math.min(previous.length, DICTIONARY_SIZE - length);
+        byte[] dictionary = new byte[keep + length];
+        System.arraycopy(previous, previous.length - keep, dictionary, 0, keep);
+        System.arraycopy(input, 0, dictionary, keep, length);
+        return dictionary;
+    }
+
+    /**
+     * An output stream which counts the bytes written through it.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import edu.iit.fsae.cabinet.entities.ChannelSummary;
+import lombok.Getter;
+import lombok.experimental.UtilityClass;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cabinet-native binary statistics format.
+ * <p>
+ * A file starts with a header holding the statistic id to name map, the row count and the offset and length of
+ * every section. It is followed by the timestamp section, stored as zigzag varint deltas, and one section per statistic.
+ * Statistic sections only hold the recorded samples, each stored as a varint row delta and a zigzag varint value
+ * delta, so the forward-filled values of a {@link StatisticsTable} take no space on disk.
+ *
+ * @author Noah Husby
+ */
+@UtilityClass
+public class StatisticsBinaryFormat {
+
+    public static final String EXTENSION = ".bstats";
+
+    private static final int MAGIC = 0x43425354;
+    private static final short VERSION = 1;
+
+    /**
+     * Writes a finished table to a binary statistics file.
+     * The file is written aside, synced and then moved in place, so a crash never leaves a partial file behind which
+     * looks like a finished conversion.
+     *
+     * @param file          The destination file.
+     * @param statisticsMap The map of statistic id to name, in column order.
+     * @param table         The finished table.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(File file, Map<String, String> statisticsMap, StatisticsTable table) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            writeSections(temp, statisticsMap, table);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+    }
+
+    private static void writeSections(File file, Map<String, String> statisticsMap, StatisticsTable table) throws IOException {
+        try (
+                FileOutputStream fileStream = new FileOutputStream(file);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream));
+        ) {
+            FileChannel channel = fileStream.getChannel();
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(table.getColumnCount());
+            for (String id : table.getIds()) {
+                out.writeUTF(id);
+                out.writeUTF(statisticsMap.getOrDefault(id, id));
+            }
+            out.writeInt(table.size());
+            out.flush();
+            long sectionsPosition = channel.position();
+            // Reserve space for the section offsets and lengths
+            for (int i = 0; i <= table.getColumnCount(); i++) {
+                out.writeLong(0);
+                out.writeLong(0);
+            }
+            long[] offsets = new long[table.getColumnCount() + 1];
+            long[] lengths = new long[table.getColumnCount() + 1];
+
+            out.flush();
+            long sectionStart = channel.position();
+            offsets[0] = sectionStart;
+            long previousTimestamp = 0;
+            for (int row = 0; row < table.size(); row++) {
+                long timestamp = table.getTimestamp(row);
+                writeVarLong(out, zigzag(timestamp - previousTimestamp));
+                previousTimestamp = timestamp;
+            }
+            out.flush();
+            lengths[0] = channel.position() - sectionStart;
+
+            for (int c = 0; c < table.getColumnCount(); c++) {
+                sectionStart = channel.position();
+                offsets[c + 1] = sectionStart;
+                int count = 0;
+                for (int row = 0; row < table.size(); row++) {
+                    if (table.isPresent(c, row)) {
+                        count++;
+                    }
+                }
+                writeVarLong(out, count);
+                int previousRow = -1;
+                long previousValue = 0;
+                for (int row = 0; row < table.size(); row++) {
+                    if (table.isPresent(c, row)) {
+                        int value = table.getValue(c, row);
+                        writeVarLong(out, row - previousRow);
+                        writeVarLong(out, zigzag(value - previousValue));
+                        previousRow = row;
+                        previousValue = value;
+                    }
+                }
+                out.flush();
+                lengths[c + 1] = channel.position() - sectionStart;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(lengths.length * Long.BYTES * 2);
+            for (int i = 0; i < lengths.length; i++) {
+                buffer.putLong(offsets[i]);
+                buffer.putLong(lengths[i]);
+            }
+            buffer.flip();
+            channel.write(buffer, sectionsPosition);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads every section of a binary statistics file into a finished, unfilled table.
+     *
+     * @param reader The reader of the binary statistics file.
+     * @return The table, in the column order of {@link Reader#getIds()}.
+     * @throws IOException If the file cannot be read.
+     */
+    public static StatisticsTable read(Reader reader) throws IOException {
+        StatisticsTable table = new StatisticsTable(reader.getIds());
+        try (
+                Cursor timestamps = reader.timestamps();
+        ) {
+            while (timestamps.next()) {
+                table.post(timestamps.getValue(), -1, 0);
+            }
+        }
+        for (int c = 0; c < reader.getIds().size(); c++) {
+            try (
+                    Cursor column = reader.column(c);
+            ) {
+                while (column.next()) {
+                    table.put(c, column.getRow(), (int) column.getValue());
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Converts a binary statistics file back to the plain-text statistics format.
+     * Lines are ordered by timestamp, then by statistic column.
+     *
+     * @param file The binary statistics file.
+     * @param os   The stream to write the plain-text statistics to.
+     * @throws IOException If the file cannot be read or the stream cannot be written.
+     */
+    public static void toText(File file, OutputStream os) throws IOException {
+        try (
+                Reader reader = new Reader(file);
+                Cursor timestamps = reader.timestamps();
+        ) {
+            List<Cursor> columns = new ArrayList<>();
+            try {
+                for (int c = 0; c < reader.getIds().size(); c++) {
+                    Cursor column = reader.column(c);
+                    column.next();
+                    columns.add(column);
+                }
+                Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+                int row = 0;
+                while (timestamps.next()) {
+                    for (int c = 0; c < columns.size(); c++) {
+                        Cursor column = columns.get(c);
+                        if (column.getRow() == row) {
+                            writer.write(String.valueOf(timestamps.getValue()));
+                            writer.write(' ');
+                            writer.write(reader.getIds().get(c));
+                            writer.write(' ');
+                            writer.write(String.valueOf(column.getValue()));
+                            writer.write('\n');
+                            column.next();
+                        }
+                    }
+                    row++;
+                }
+                writer.flush();
+            } finally {
+                for (Cursor column : columns) {
+                    column.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Summarizes every statistic of a binary statistics file, in a single pass over its rows.
+     *
+     * @param file The binary statistics file.
+     * @return Map of statistic name and {@link ChannelSummary}, for each statistic with at least one sample.
+     */
+    public static Map<String, ChannelSummary> summarize(File file) throws IOException {
+        try (
+                Reader reader = new Reader(file);
+                Cursor timestamps = reader.timestamps();
+        ) {
+            List<Cursor> columns = new ArrayList<>();
+            ChannelSummary[] summaries = new ChannelSummary[reader.getIds().size()];
+            try {
+                for (int c = 0; c < summaries.length; c++) {
+                    Cursor column = reader.column(c);
+                    column.next();
+                    columns.add(column);
+                    summaries[c] = new ChannelSummary();
+                }
+                int row = 0;
+                while (timestamps.next()) {
+                    for (int c = 0; c < columns.size(); c++) {
+                        Cursor column = columns.get(c);
+                        if (column.getRow() == row) {
+                            summaries[c].post(timestamps.getValue(), column.getValue());
+                            column.next();
+                        }
+                    }
+                    row++;
+                }
+            } finally {
+                for (Cursor column : columns) {
+                    column.close();
+                }
+            }
+            Map<String, ChannelSummary> summaryMap = new LinkedHashMap<>();
+            for (int c = 0; c < summaries.length; c++) {
+                if (summaries[c].getCount() > 0) {
+                    summaryMap.put(reader.getStatisticsMap().get(reader.getIds().get(c)), summaries[c]);
+                }
+            }
+            return summaryMap;
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of binary statistics section.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in binary statistics file.");
+    }
+
+    /**
+     * A reader for the header and sections of a binary statistics file.
+     * Every section can be read independently, so a single statistic can be streamed without touching the others.
+     */
+    public static class Reader implements Closeable {
+        private final FileChannel channel;
+        @Getter
+        private final Map<String, String> statisticsMap = new LinkedHashMap<>();
+        @Getter
+        private final List<String> ids;
+        @Getter
+        private final int rows;
+        private final long[] offsets;
+        private final long[] lengths;
+
+        /**
+         * Opens a binary statistics file and reads its header.
+         *
+         * @param file The binary statistics file.
+         * @throws IOException If the file cannot be read, or is not a binary statistics file.
+         */
+        public Reader(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new ChannelInputStream(channel, 0, channel.size())));
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a binary statistics file: " + file.getName());
+                }
+                short version = in.readShort();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported binary statistics version: " + version);
+                }
+                int columns = in.readInt();
+                List<String> columnIds = new ArrayList<>(columns);
+                for (int i = 0; i < columns; i++) {
+                    String id = in.readUTF();
+                    String name = in.readUTF();
+                    columnIds.add(id);
+                    statisticsMap.put(id, name);
+                }
+                ids = Collections.unmodifiableList(columnIds);
+                rows = in.readInt();
+                lengths = new long[columns + 1];
+                offsets = new long[columns + 1];
+                for (int i = 0; i < lengths.length; i++) {
+                    offsets[i] = in.readLong();
+                    lengths[i] = in.readLong();
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return A cursor over every timestamp, in row order.
+         */
+        public Cursor timestamps() {
+            return new Cursor(open(0), false, rows);
+        }
+
+        /**
+         * Opens a cursor over the recorded samples of a statistic.
+         *
+         * @param column The column of the statistic.
+         * @return A cursor over the samples, in row order.
+         * @throws IOException If the section cannot be read.
+         */
+        public Cursor column(int column) throws IOException {
+            return new Cursor(open(column + 1), true, -1);
+        }
+
+        /**
+         * Streams every recorded sample of a statistic with its timestamp.
+         *
+         * @param column   The column of the statistic.
+         * @param consumer Receives each sample, in row order.
+         * @throws IOException If the sections cannot be read.
+         */
+        public void scan(int column, SampleConsumer consumer) throws IOException {
+            try (
+                    Cursor timestamps = timestamps();
+                    Cursor samples = column(column);
+            ) {
+                while (samples.next()) {
+                    while (timestamps.getRow() < samples.getRow()) {
+                        timestamps.next();
+                    }
+                    consumer.accept(timestamps.getValue(), samples.getValue());
+                }
+            }
+        }
+
+        /**
+         * Gets the column of a statistic by its name.
+         *
+         * @param name The name of the statistic.
+         * @return The column if the statistic exists, -1 otherwise.
+         */
+        public int getColumnByName(String name) {
+            for (int i = 0; i < ids.size(); i++) {
+                if (statisticsMap.get(ids.get(i)).equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private InputStream open(int section) {
+            return StatisticsBinaryFormat.open(channel, offsets[section], offsets[section] + lengths[section]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Receives the samples of a statistic.
+     */
+    @FunctionalInterface
+    public interface SampleConsumer {
+        /**
+         * @param timestamp The timestamp of the sample.
+         * @param value     The value of the sample.
+         */
+        void accept(long timestamp, long value);
+    }
+
+    /**
+     * A forward-only cursor over a section of a binary statistics file.
+     */
+    public static class Cursor implements Closeable {
+        private final InputStream in;
+        private final boolean sparse;
+        private long remaining;
+        @Getter
+        private int row = -1;
+        @Getter
+        private long value = 0;
+
+        private Cursor(InputStream in, boolean sparse, long remaining) {
+            this.in = in;
+            this.sparse = sparse;
+            this.remaining = remaining;
+        }
+
+        /**
+         * Advances the cursor.
+         *
+         * @return True if the cursor moved to a new sample, false if the section has been exhausted.
+         * @throws IOException If the section cannot be read.
+         */
+        public boolean next() throws IOException {
+            if (remaining < 0) {
+                remaining = readVarLong(in);
+            }
+            if (remaining == 0) {
+                row = Integer.MAX_VALUE;
+                return false;
+            }
+            remaining--;
+            row += sparse ? (int) readVarLong(in) : 1;
+            value += unzigzag(readVarLong(in));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Opens a buffered stream over a range of a {@link FileChannel}.
+     *
+     * @param channel The channel.
+     * @param start   The inclusive start of the range.
+     * @param end     The exclusive end of the range.
+     * @return {@link InputStream}
+     */
+    static InputStream open(FileChannel channel, long start, long end) {
+        return new BufferedInputStream(new ChannelInputStream(channel, start, end));
+    }
+
+    /**
+     * A positional input stream over a range of a {@link FileChannel}, so sections can be read concurrently.
+     */
+    private static class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        private ChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An allocation-free parser for the plain-text statistics format.
+ * <p>
+ * Each line of a statistics file is made up of a timestamp, a statistic id and a value, separated by single spaces.
+ * The parser scans the raw bytes directly and emits every sample to a {@link Listener}. Malformed lines are skipped
+ * and reported with their byte offset rather than aborting the parse.
+ *
+ * @author Noah Husby
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class StatisticsParser {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_REPORTED_LINES = 10;
+    private static final int MAX_DIGITS = 18;
+
+    private final Listener listener;
+    @Getter
+    private long malformedLines = 0;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private int field;
+    private long accumulator;
+    private int digits;
+    private boolean negative;
+    private boolean malformed;
+    private long timestamp;
+    private int id;
+    private long lineStart;
+    private long streamPosition;
+
+    /**
+     * Parses an entire statistics file.
+     *
+     * @param file The statistics file.
+     * @throws IOException If the file cannot be read.
+     */
+    public void parse(File file) throws IOException {
+        try (
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ) {
+            parse(channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Parses a byte range of a statistics file.
+     * The range is expected to start at the beginning of a line, and end at the end of a line.
+     *
+     * @param channel The channel of the statistics file.
+     * @param from    The inclusive starting position.
+     * @param to      The exclusive ending position.
+     * @throws IOException If the channel cannot be read.
+     */
+    public void parse(FileChannel channel, long from, long to) throws IOException {
+        reset(from);
+        long position = from;
+        while (position < to) {
+            buffer.clear();
+            if (to - position < buffer.capacity()) {
+                buffer.limit((int) (to - position));
+            }
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            feed(buffer.array(), read, position);
+            position += read;
+        }
+        endLine(position);
+    }
+
+    /**
+     * Starts parsing a stream of statistics, which is then passed in pieces to {@link #append(byte[], int)}.
+     * Lines may span pieces, and only the state of the current line is kept, so memory stays constant however long a
+     * line is.
+     *
+     * @param offset The byte offset of the stream, used when reporting malformed lines.
+     */
+    public void begin(long offset) {
+        reset(offset);
+        streamPosition = offset;
+    }
+
+    /**
+     * Parses the next piece of a stream started with {@link #begin(long)}.
+     * An unterminated last line is left open, so it can be completed by the next piece.
+     *
+     * @param bytes  The buffer holding the piece.
+     * @param length The length of the piece.
+     */
+    public void append(byte[] bytes, int length) {
+        feed(bytes, length, streamPosition);
+        streamPosition += length;
+    }
+
+    /**
+     * Splits a statistics file into byte ranges which start and end on line boundaries.
+     *
+     * @param channel The channel of the statistics file.
+     * @param parts   The desired amount of ranges.
+     * @return The boundaries of the ranges, where range {@code i} spans from {@code bounds[i]} to {@code bounds[i + 1]}.
+     * @throws IOException If the channel cannot be read.
+     */
+    public static long[] split(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        long[] bounds = new long[parts + 1];
+        bounds[parts] = size;
+        ByteBuffer scan = ByteBuffer.allocate(4096);
+        for (int i = 1; i < parts; i++) {
+            long position = Math.max(size * i / parts, bounds[i - 1]);
+            long bound = size;
+            search:
+            while (position < size) {
+                scan.clear();
+                int read = channel.read(scan, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int j = 0; j < read; j++) {
+                    if (scan.get(j) == '\n') {
+                        bound = position + j + 1;
+                        break search;
+                    }
+                }
+                position += read;
+            }
+            bounds[i] = bound;
+        }
+        return bounds;
+    }
+
+    private void reset(long position) {
+        field = 0;
+        resetField();
+        malformed = false;
+        lineStart = position;
+    }
+
+    private void resetField() {
+        accumulator = 0;
+        digits = 0;
+        negative = false;
+    }
+
+    private void feed(byte[] bytes, int length, long position) {
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                endLine(position + i + 1);
+            } else if (malformed || field > 2) {
+                // Skip the remainder of the line
+            } else if (b >= '0' && b <= '9') {
+                accumulator = accumulator * 10 + (b - '0');
+                if (++digits > MAX_DIGITS) {
+                    malformed = true;
+                }
+            } else if (b == ' ') {
+                commitField();
+            } else if (b == '\r') {
+                if (digits > 0) {
+                    commitField();
+                }
+            } else if (b == '-' && digits == 0 && !negative) {
+                negative = true;
+            } else {
+                malformed = true;
+            }
+        }
+    }
+
+    private void commitField() {
+        if (digits == 0) {
+            malformed = true;
+            return;
+        }
+        long value = negative ? -accumulator : accumulator;
+        switch (field) {
+            case 0:
+                timestamp = value;
+                break;
+            case 1:
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    malformed = true;
+                }
+                id = (int) value;
+                break;
+            default:
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    malformed = true;
+                }
+                if (!malformed) {
+                    listener.onSample(timestamp, id, (int) value);
+                }
+                break;
+        }
+        field++;
+        resetField();
+    }
+
+    private void endLine(long nextLineStart) {
+        boolean empty = field == 0 && digits == 0 && !negative && !malformed;
+        if (!empty) {
+            if (field <= 2 && !malformed) {
+                commitField();
+            }
+            if (malformed || field <= 2) {
+                reportMalformed();
+            }
+        }
+        field = 0;
+        resetField();
+        malformed = false;
+        lineStart = nextLineStart;
+    }
+
+    private void reportMalformed() {
+        malformedLines++;
+        if (malformedLines <= MAX_REPORTED_LINES) {
+            log.warn("Skipping malformed statistics line at byte {}", lineStart);
+        } else if (malformedLines == MAX_REPORTED_LINES + 1) {
+            log.warn("Further malformed statistics lines will not be reported.");
+        }
+        listener.onMalformed(lineStart);
+    }
+
+    /**
+     * A listener for parsed statistics samples.
+     */
+    public interface Listener {
+        /**
+         * Called for every well-formed sample.
+         *
+         * @param timestamp The timestamp of the sample.
+         * @param id        The statistic id.
+         * @param value     The value of the sample.
+         */
+        void onSample(long timestamp, int id, int value);
+
+        /**
+         * Called for every malformed line.
+         *
+         * @param offset The byte offset of the start of the line.
+         */
+        default void onMalformed(long offset) {
+        }
+    }
+}
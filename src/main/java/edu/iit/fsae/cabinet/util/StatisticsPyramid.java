@@ -0,0 +1,305 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import lombok.Getter;
+import lombok.experimental.UtilityClass;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Min/max downsampled levels of a binary statistics file, so charts can be drawn without reading every row.
+ * <p>
+ * Each level splits the log into equal time buckets from its first timestamp, and keeps the minimum and maximum of each
+ * statistic within every bucket, over the forward-filled values of every row. A file starts with a header holding the
+ * first and last timestamp, the bucket width of each level and the offset and length of every section. It is followed
+ * by one section per level and statistic, in the column order of the binary statistics file, each holding its point
+ * count and every point as a zigzag varint timestamp delta and a zigzag varint value delta.
+ *
+ * @author Noah Husby
+ */
+@UtilityClass
+public class StatisticsPyramid {
+
+    public static final String EXTENSION = ".pyramid";
+    /**
+     * The bucket width of each level in milliseconds, from the finest to the coarsest.
+     */
+    private static final long[] LEVELS = { 1000, 10000, 60000 };
+
+    private static final int MAGIC = 0x43425059;
+    private static final short VERSION = 1;
+
+    /**
+     * Gets the pyramid file which belongs to a binary statistics file.
+     *
+     * @param binaryFile The binary statistics file.
+     * @return The pyramid file.
+     */
+    public static File getFile(File binaryFile) {
+        String name = binaryFile.getName();
+        if (name.endsWith(StatisticsBinaryFormat.EXTENSION)) {
+            name = name.substring(0, name.length() - StatisticsBinaryFormat.EXTENSION.length());
+        }
+        return new File(binaryFile.getParentFile(), name + EXTENSION);
+    }
+
+    /**
+     * Builds the levels of a binary statistics file.
+     * Statistics are read one at a time, so only the levels of a single statistic are held in memory.
+     *
+     * @param binaryFile The binary statistics file.
+     * @param file       The destination file.
+     * @throws IOException If either file cannot be read or written.
+     */
+    public static void write(File binaryFile, File file) throws IOException {
+        try (
+                StatisticsBinaryFormat.Reader reader = new StatisticsBinaryFormat.Reader(binaryFile);
+                FileOutputStream fileStream = new FileOutputStream(file);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream));
+        ) {
+            FileChannel channel = fileStream.getChannel();
+            int columns = reader.getIds().size();
+            long first = 0;
+            long last = 0;
+            try (
+                    StatisticsBinaryFormat.Cursor timestamps = reader.timestamps();
+            ) {
+                if (timestamps.next()) {
+                    first = timestamps.getValue();
+                    do {
+                        last = timestamps.getValue();
+                    } while (timestamps.next());
+                }
+            }
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(columns);
+            out.writeLong(first);
+            out.writeLong(last);
+            out.writeInt(LEVELS.length);
+            for (long width : LEVELS) {
+                out.writeLong(width);
+            }
+            out.flush();
+            long sectionsPosition = channel.position();
+            // Reserve space for the section offsets and lengths
+            int sections = LEVELS.length * columns;
+            for (int i = 0; i < sections; i++) {
+                out.writeLong(0);
+                out.writeLong(0);
+            }
+            long[] offsets = new long[sections];
+            long[] lengths = new long[sections];
+
+            for (int c = 0; c < columns; c++) {
+                SectionWriter[] writers = new SectionWriter[LEVELS.length];
+                MinMaxBucketer[] bucketers = new MinMaxBucketer[LEVELS.length];
+                for (int level = 0; level < LEVELS.length; level++) {
+                    writers[level] = new SectionWriter();
+                    bucketers[level] = new MinMaxBucketer(first, LEVELS[level], writers[level]);
+                }
+                try (
+                        StatisticsBinaryFormat.Cursor timestamps = reader.timestamps();
+                        StatisticsBinaryFormat.Cursor samples = reader.column(c);
+                ) {
+                    samples.next();
+                    long current = 0;
+                    int row = 0;
+                    while (timestamps.next()) {
+                        while (samples.getRow() <= row) {
+                            current = samples.getValue();
+                            samples.next();
+                        }
+                        for (MinMaxBucketer bucketer : bucketers) {
+                            bucketer.post(timestamps.getValue(), current);
+                        }
+                        row++;
+                    }
+                }
+                for (int level = 0; level < LEVELS.length; level++) {
+                    bucketers[level].flush();
+                    out.flush();
+                    int section = level * columns + c;
+                    offsets[section] = channel.position();
+                    writers[level].writeTo(out);
+                    out.flush();
+                    lengths[section] = channel.position() - offsets[section];
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(sections * Long.BYTES * 2);
+            for (int i = 0; i < sections; i++) {
+                buffer.putLong(offsets[i]);
+                buffer.putLong(lengths[i]);
+            }
+            buffer.flip();
+            channel.write(buffer, sectionsPosition);
+        }
+    }
+
+    /**
+     * Encodes the points of a single section in memory, until its point count is known.
+     */
+    private static class SectionWriter implements MinMaxBucketer.PointConsumer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private long count = 0;
+        private long previousTimestamp = 0;
+        private long previousValue = 0;
+
+        @Override
+        public void accept(long bucket, long timestamp, long value) {
+            try {
+                StatisticsBinaryFormat.writeVarLong(out, StatisticsBinaryFormat.zigzag(timestamp - previousTimestamp));
+                StatisticsBinaryFormat.writeVarLong(out, StatisticsBinaryFormat.zigzag(value - previousValue));
+            } catch (IOException e) {
+                // Writing to memory cannot fail
+                throw new IllegalStateException(e);
+            }
+            previousTimestamp = timestamp;
+            previousValue = value;
+            count++;
+        }
+
+        private void writeTo(DataOutputStream section) throws IOException {
+            StatisticsBinaryFormat.writeVarLong(section, count);
+            bytes.writeTo(section);
+        }
+    }
+
+    /**
+     * A reader for the header and sections of a pyramid file.
+     */
+    public static class Reader implements Closeable {
+        private final FileChannel channel;
+        @Getter
+        private final int columns;
+        @Getter
+        private final long first;
+        @Getter
+        private final long last;
+        private final long[] widths;
+        private final long[] offsets;
+        private final long[] lengths;
+
+        /**
+         * Opens a pyramid file and reads its header.
+         *
+         * @param file The pyramid file.
+         * @throws IOException If the file cannot be read, or is not a pyramid file.
+         */
+        public Reader(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                DataInputStream in = new DataInputStream(StatisticsBinaryFormat.open(channel, 0, channel.size()));
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a pyramid file: " + file.getName());
+                }
+                short version = in.readShort();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported pyramid version: " + version);
+                }
+                columns = in.readInt();
+                first = in.readLong();
+                last = in.readLong();
+                widths = new long[in.readInt()];
+                for (int i = 0; i < widths.length; i++) {
+                    widths[i] = in.readLong();
+                }
+                offsets = new long[widths.length * columns];
+                lengths = new long[offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = in.readLong();
+                    lengths[i] = in.readLong();
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Selects the coarsest level which still fits a bucket width, so each bucket is made of at least one level
+         * bucket.
+         *
+         * @param bucketWidth The requested bucket width in milliseconds.
+         * @return The level, or -1 if every level is coarser than the requested width.
+         */
+        public int selectLevel(long bucketWidth) {
+            int selected = -1;
+            for (int level = 0; level < widths.length; level++) {
+                if (widths[level] <= bucketWidth) {
+                    selected = level;
+                }
+            }
+            return selected;
+        }
+
+        /**
+         * @param level The level.
+         * @return The bucket width of the level in milliseconds.
+         */
+        public long getWidth(int level) {
+            return widths[level];
+        }
+
+        /**
+         * Streams the points of a statistic at a level, in time order.
+         *
+         * @param level    The level.
+         * @param column   The column of the statistic in the binary statistics file.
+         * @param consumer Receives each point.
+         * @throws IOException If the section cannot be read.
+         */
+        public void scan(int level, int column, StatisticsBinaryFormat.SampleConsumer consumer) throws IOException {
+            int section = level * columns + column;
+            try (
+                    InputStream in = StatisticsBinaryFormat.open(channel, offsets[section], offsets[section] + lengths[section]);
+            ) {
+                long count = StatisticsBinaryFormat.readVarLong(in);
+                long timestamp = 0;
+                long value = 0;
+                for (long i = 0; i < count; i++) {
+                    timestamp += StatisticsBinaryFormat.unzigzag(StatisticsBinaryFormat.readVarLong(in));
+                    value += StatisticsBinaryFormat.unzigzag(StatisticsBinaryFormat.readVarLong(in));
+                    consumer.accept(timestamp, value);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
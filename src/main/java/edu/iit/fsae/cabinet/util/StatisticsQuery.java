@@ -0,0 +1,191 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import lombok.RequiredArgsConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A time-range query over a binary statistics file, downsampled with min/max bucketing.
+ * <p>
+ * The requested window is split into equal time buckets, and the minimum and maximum sample of each channel within a
+ * bucket are kept in time order. When the {@link StatisticsPyramid} of the file has a level at least as fine as the
+ * buckets, the points of that level are bucketed instead of the rows, so only zoomed-in windows read the raw sections.
+ * Buckets drawn from a level are exact, except where a level bucket straddles two query buckets. Otherwise, only the
+ * timestamp section and the sections of the requested channels are read.
+ *
+ * @author Noah Husby
+ */
+@RequiredArgsConstructor
+public class StatisticsQuery {
+
+    public static final int DEFAULT_POINTS = 1000;
+    public static final int MAX_POINTS = 10000;
+
+    private final List<String> channels;
+    private final Long from;
+    private final Long to;
+    private final int points;
+
+    /**
+     * Runs the query against a binary statistics file.
+     *
+     * @param binaryFile The binary statistics file.
+     * @return {@link JsonObject} holding the window and the downsampled series of every channel.
+     * @throws IOException              If the file cannot be read.
+     * @throws IllegalArgumentException If a requested channel does not exist.
+     */
+    public JsonObject run(File binaryFile) throws IOException {
+        File pyramidFile = StatisticsPyramid.getFile(binaryFile);
+        try (
+                StatisticsBinaryFormat.Reader reader = new StatisticsBinaryFormat.Reader(binaryFile);
+                StatisticsPyramid.Reader pyramid = pyramidFile.exists() ? new StatisticsPyramid.Reader(pyramidFile) : null;
+        ) {
+            int[] columns = new int[channels.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = reader.getColumnByName(channels.get(i));
+                if (columns[i] < 0) {
+                    throw new IllegalArgumentException("Unknown channel: " + channels.get(i));
+                }
+            }
+            boolean hasPyramid = pyramid != null && pyramid.getColumns() == reader.getIds().size();
+
+            // Resolve the window from the timestamps
+            long first = Long.MAX_VALUE;
+            long last = Long.MIN_VALUE;
+            if (hasPyramid) {
+                first = pyramid.getFirst();
+                last = pyramid.getLast();
+            } else {
+                try (
+                        StatisticsBinaryFormat.Cursor timestamps = reader.timestamps();
+                ) {
+                    while (timestamps.next()) {
+                        first = Math.min(first, timestamps.getValue());
+                        last = Math.max(last, timestamps.getValue());
+                    }
+                }
+            }
+            long start = from == null ? first : from;
+            long end = to == null ? last : to;
+            int buckets = Math.max(1, points / 2);
+            long width = Math.max(1, (end - start) / buckets + 1);
+
+            List<Series> series = new ArrayList<>();
+            for (int i = 0; i < columns.length; i++) {
+                series.add(new Series(start, width));
+            }
+            int level = hasPyramid ? pyramid.selectLevel(width) : -1;
+            if (level >= 0) {
+                for (int i = 0; i < columns.length; i++) {
+                    Series s = series.get(i);
+                    pyramid.scan(level, columns[i], (timestamp, value) -> {
+                        if (timestamp >= start && timestamp <= end) {
+                            s.bucketer.post(timestamp, value);
+                        }
+                    });
+                }
+            } else {
+                scanRows(reader, columns, series, start, end);
+            }
+
+            JsonObject result = new JsonObject();
+            result.addProperty("from", start);
+            result.addProperty("to", end);
+            result.addProperty("bucketWidth", width);
+            result.addProperty("resolution", level >= 0 ? pyramid.getWidth(level) : 0);
+            JsonObject channelsObject = new JsonObject();
+            for (int i = 0; i < series.size(); i++) {
+                channelsObject.add(reader.getStatisticsMap().get(reader.getIds().get(columns[i])), series.get(i).toJson());
+            }
+            result.add("channels", channelsObject);
+            return result;
+        }
+    }
+
+    /**
+     * Buckets the forward-filled value of every channel at every row within the window.
+     */
+    private static void scanRows(StatisticsBinaryFormat.Reader reader, int[] columns, List<Series> series, long start, long end) throws IOException {
+        List<StatisticsBinaryFormat.Cursor> cursors = new ArrayList<>();
+        try (
+                StatisticsBinaryFormat.Cursor timestamps = reader.timestamps();
+        ) {
+            for (int column : columns) {
+                StatisticsBinaryFormat.Cursor cursor = reader.column(column);
+                cursor.next();
+                cursors.add(cursor);
+            }
+            long[] current = new long[columns.length];
+            int row = 0;
+            while (timestamps.next()) {
+                long timestamp = timestamps.getValue();
+                for (int i = 0; i < cursors.size(); i++) {
+                    StatisticsBinaryFormat.Cursor cursor = cursors.get(i);
+                    while (cursor.getRow() <= row) {
+                        current[i] = cursor.getValue();
+                        cursor.next();
+                    }
+                }
+                if (timestamp >= start && timestamp <= end) {
+                    for (int i = 0; i < series.size(); i++) {
+                        series.get(i).bucketer.post(timestamp, current[i]);
+                    }
+                }
+                row++;
+            }
+        } finally {
+            for (StatisticsBinaryFormat.Cursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * The downsampled series of a single channel.
+     */
+    private static class Series {
+        private final JsonArray timestamps = new JsonArray();
+        private final JsonArray values = new JsonArray();
+        private final MinMaxBucketer bucketer;
+
+        private Series(long start, long width) {
+            bucketer = new MinMaxBucketer(start, width, (bucket, timestamp, value) -> {
+                timestamps.add(timestamp);
+                values.add(value);
+            });
+        }
+
+        private JsonObject toJson() {
+            bucketer.flush();
+            JsonObject object = new JsonObject();
+            object.add("timestamps", timestamps);
+            object.add("values", values);
+            return object;
+        }
+    }
+}
@@ -22,10 +22,9 @@ package edu.iit.fsae.cabinet.util;
 
 import com.google.gson.reflect.TypeToken;
 import edu.iit.fsae.cabinet.Constants;
+import edu.iit.fsae.cabinet.entities.ChannelSummary;
 import edu.iit.fsae.cabinet.entities.Log;
-import edu.iit.fsae.cabinet.util.tracking.LastTrackingPolicy;
-import edu.iit.fsae.cabinet.util.tracking.MaxTrackingPolicy;
-import edu.iit.fsae.cabinet.util.tracking.TrackingPolicy;
+import edu.iit.fsae.cabinet.util.tracking.TrackerSet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.common.usermodel.HyperlinkType;
@@ -52,6 +51,7 @@ import org.apache.poi.xddf.usermodel.chart.XDDFDataSourcesFactory;
 import org.apache.poi.xddf.usermodel.chart.XDDFLineChartData;
 import org.apache.poi.xddf.usermodel.chart.XDDFNumericalDataSource;
 import org.apache.poi.xddf.usermodel.chart.XDDFValueAxis;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.DefaultIndexedColorMap;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFChart;
@@ -63,15 +63,21 @@ import org.apache.poi.xssf.usermodel.XSSFHyperlink;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * @author Noah Husby
@@ -84,120 +90,268 @@ public class StatisticsSheetWriter {
     private final File statisticsFile;
     private final File statisticsMapFile;
     private Map<String, String> statisticsMap;
-    private Map<Long, Map<String, Integer>> statistics;
+    private StatisticsTable statistics;
 
     private static final Type statMapType = new TypeToken<Map<String, String>>() {}.getType();
-    private final Map<String, TrackingPolicy> trackedStatistics = new HashMap<>();
+    private TrackerSet trackedStatistics;
+    private Map<String, ChannelSummary> summaries;
+    private File pyramidFile;
     private static final String OVERVIEW_PAGE = "Overview";
+    private static final String RAW_PAGE = "Raw";
+    private static final String VISUAL_PAGE = "Visual";
+    private static final String CHART_DATA_PAGE = "Chart Data";
+    private static final int CHART_BUCKETS = 500;
+    private static final int RAW_ROW_WINDOW = 500;
+    private static final long PARALLEL_PARSE_THRESHOLD = 32L * 1024 * 1024;
 
     private static final String MOTOR_SPEED = "SPEEDOMETER";
     private static final String STATE_OF_CHARGE = "SOC";
     private static final String MOTOR_CONTROLLER_0_CURRENT = "MC0_CURRENT";
     private static final String MOTOR_CONTROLLER_1_CURRENT = "MC1_CURRENT";
-    private static final String MOTOR_CONTROLLER_0_TEMP = "MC0_MOTOR_TEMP";
-    private static final String MOTOR_CONTROLLER_1_TEMP = "MC1_MOTOR_TEMP";
-
-    private void setupTrackers() {
-        trackedStatistics.put(MOTOR_SPEED, new MaxTrackingPolicy());
-        trackedStatistics.put(STATE_OF_CHARGE, new LastTrackingPolicy());
-        trackedStatistics.put(MOTOR_CONTROLLER_0_CURRENT, new MaxTrackingPolicy());
-        trackedStatistics.put(MOTOR_CONTROLLER_1_CURRENT, new MaxTrackingPolicy());
-        trackedStatistics.put(MOTOR_CONTROLLER_0_TEMP, new MaxTrackingPolicy());
-        trackedStatistics.put(MOTOR_CONTROLLER_1_TEMP, new MaxTrackingPolicy());
-    }
 
     /**
      * Parses the statistics file.
+     * Large files are split on line boundaries and parsed in parallel on the common {@link ForkJoinPool}.
      */
     public void parse() throws IOException {
-        setupTrackers();
+        parse(statisticsFile.length() >= PARALLEL_PARSE_THRESHOLD ? ForkJoinPool.getCommonPoolParallelism() : 1);
+    }
+
+    /**
+     * Parses the statistics file.
+     *
+     * @param parallelism The amount of chunks to split the file into. Chunks are parsed in parallel on the common
+     *                    {@link ForkJoinPool} when greater than one.
+     * @throws IOException If any part of the statistics file could not be read.
+     */
+    public void parse(int parallelism) throws IOException {
         FileReader statMapReader = new FileReader(statisticsMapFile);
         statisticsMap = Constants.GSON.fromJson(statMapReader, statMapType);
         statMapReader.close();
-        statistics = new TreeMap<>();
+        trackedStatistics = new TrackerSet();
+
+        List<ParseChunk> chunks = new ArrayList<>();
         try (
-                BufferedReader reader = new BufferedReader(new FileReader(statisticsFile));
+                FileChannel channel = FileChannel.open(statisticsFile.toPath(), StandardOpenOption.READ);
         ) {
-            String line = reader.readLine();
-            while (line != null) {
-                String[] statArray = line.split(" ");
-                long timestamp = Long.parseLong(statArray[0]);
-                int value = Integer.parseInt(statArray[2]);
-                statistics.putIfAbsent(timestamp, new HashMap<>());
-                statistics.get(timestamp).put(statArray[1], value);
-                TrackingPolicy policy = trackedStatistics.get(statisticsMap.get(statArray[1]));
-                if (policy != null) {
-                    policy.post(value);
+            long[] bounds = StatisticsParser.split(channel, Math.max(1, parallelism));
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < bounds.length - 1; i++) {
+                ParseChunk chunk = new ParseChunk(bounds[i], bounds[i + 1]);
+                chunks.add(chunk);
+                if (parallelism > 1) {
+                    tasks.add(ForkJoinPool.commonPool().submit(() -> chunk.parse(channel)));
+                } else {
+                    chunk.parse(channel);
                 }
-                line = reader.readLine();
             }
-        } catch (IOException e) {
-            log.error("Failed to parse log file for statistics.", e);
+            tasks.forEach(ForkJoinTask::join);
+        }
+        // A partial parse must not be written out as if it were complete
+        for (ParseChunk chunk : chunks) {
+            if (chunk.failure != null) {
+                throw chunk.failure;
+            }
         }
 
+        // Merge chunks in file order
+        statistics = chunks.isEmpty() ? new StatisticsTable(statisticsMap.keySet()) : chunks.get(0).table;
+        long malformedLines = 0;
+        ChannelSummary[] merged = new ChannelSummary[statistics.getColumnCount()];
+        for (int c = 0; c < merged.length; c++) {
+            merged[c] = new ChannelSummary();
+        }
+        for (ParseChunk chunk : chunks) {
+            if (chunk.table != statistics) {
+                statistics.append(chunk.table);
+            }
+            trackedStatistics.merge(chunk.trackers);
+            for (int c = 0; c < merged.length; c++) {
+                merged[c].merge(chunk.summaries[c]);
+            }
+            malformedLines += chunk.malformedLines;
+        }
+        summaries = new LinkedHashMap<>();
+        for (int c = 0; c < merged.length; c++) {
+            if (merged[c].getCount() > 0) {
+                summaries.put(statisticsMap.get(statistics.getId(c)), merged[c]);
+            }
+        }
+        if (malformedLines > 0) {
+            log.warn("Skipped {} malformed lines while parsing statistics for Log #{}", malformedLines, logMetadata.getId());
+        }
 
         // Normalize data
-        Map<String, Integer> lastRowStat = null;
-        for (Map.Entry<Long, Map<String, Integer>> e : new TreeMap<>(statistics).entrySet()) {
-            for (Map.Entry<String, String> e2 : statisticsMap.entrySet()) {
-                if (!e.getValue().containsKey(e2.getKey())) {
-                    if (lastRowStat == null) {
-                        e.getValue().put(e2.getKey(), 0);
-                        statistics.get(e.getKey()).put(e2.getKey(), 0);
-                    } else {
-                        statistics.get(e.getKey()).put(e2.getKey(), lastRowStat.get(e2.getKey()));
-                    }
+        statistics.finish();
+        statistics.fill();
+    }
+
+    /**
+     * Loads previously parsed statistics from a binary statistics file instead of parsing the plain-text file.
+     *
+     * @param binaryFile The binary statistics file.
+     */
+    public void load(File binaryFile) throws IOException {
+        pyramidFile = StatisticsPyramid.getFile(binaryFile);
+        try (
+                StatisticsBinaryFormat.Reader reader = new StatisticsBinaryFormat.Reader(binaryFile);
+        ) {
+            statisticsMap = reader.getStatisticsMap();
+            statistics = StatisticsBinaryFormat.read(reader);
+        }
+        trackedStatistics = new TrackerSet();
+        // Post every sample in row order, so time-based trackers see each statistic in sequence
+        TrackerSet.Binding binding = trackedStatistics.bind(getNames(statistics));
+        int[] columns = binding.getColumns();
+        for (int row = 0; row < statistics.size(); row++) {
+            long timestamp = statistics.getTimestamp(row);
+            for (int c : columns) {
+                if (statistics.isPresent(c, row)) {
+                    binding.post(c, timestamp, statistics.getValue(c, row));
                 }
             }
-            lastRowStat = e.getValue();
+        }
+        statistics.fill();
+    }
+
+    /**
+     * @return The summary of each statistic by name, once parsed.
+     */
+    public Map<String, ChannelSummary> getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * @return The tracked statistics, once parsed or loaded.
+     */
+    public TrackerSet getTrackedStatistics() {
+        return trackedStatistics;
+    }
+
+    private List<String> getNames(StatisticsTable table) {
+        List<String> names = new ArrayList<>(table.getColumnCount());
+        for (int c = 0; c < table.getColumnCount(); c++) {
+            names.add(statisticsMap.get(table.getId(c)));
+        }
+        return names;
+    }
+
+    /**
+     * Writes the parsed statistics to a binary statistics file.
+     *
+     * @param binaryFile The file to be written to.
+     */
+    public void writeBinary(File binaryFile) throws IOException {
+        StatisticsBinaryFormat.write(binaryFile, statisticsMap, statistics);
+    }
+
+    /**
+     * A byte range of the statistics file, parsed into its own table and trackers.
+     */
+    private class ParseChunk {
+        private final long from;
+        private final long to;
+        private final StatisticsTable table = new StatisticsTable(statisticsMap.keySet());
+        private final TrackerSet trackers = new TrackerSet();
+        private final ChannelSummary[] summaries = new ChannelSummary[table.getColumnCount()];
+        private long malformedLines = 0;
+        private IOException failure;
+
+        private ParseChunk(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private void parse(FileChannel channel) {
+            TrackerSet.Binding binding = trackers.bind(getNames(table));
+            for (int c = 0; c < summaries.length; c++) {
+                summaries[c] = new ChannelSummary();
+            }
+            StatisticsParser parser = new StatisticsParser((timestamp, id, value) -> {
+                int column = table.getColumn(id);
+                table.post(timestamp, column, value);
+                binding.post(column, timestamp, value);
+                if (column >= 0) {
+                    summaries[column].post(timestamp, value);
+                }
+            });
+            try {
+                parser.parse(channel, from, to);
+            } catch (IOException e) {
+                failure = new IOException("Failed to parse statistics between bytes " + from + " and " + to + ".", e);
+            }
+            malformedLines = parser.getMalformedLines();
         }
     }
 
     /**
      * Writes the final workbook to the specified file.
+     * <p>
+     * The overview and visual tabs are built in memory, while the raw tab is streamed to disk in a bounded row window so
+     * heap usage stays flat regardless of the session length.
      *
      * @param file The file to written to.
      */
     public void write(File file) throws IOException {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        overview(workbook);
-        XSSFSheet raw = workbook.createSheet("Raw");
+        XSSFWorkbook template = new XSSFWorkbook();
+        overview(template);
+        template.createSheet(RAW_PAGE);
+        // Stat ID as String | Header column
+        Map<String, Integer> headerMap = new HashMap<>();
+        int currentHeaderColumn = 2;
+        for (String id : statisticsMap.keySet()) {
+            headerMap.put(id, currentHeaderColumn);
+            currentHeaderColumn++;
+        }
+        visual(template);
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(template, RAW_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try (
+                FileOutputStream outputStream = new FileOutputStream(file);
+        ) {
+            raw(workbook.getSheet(RAW_PAGE), headerMap);
+            workbook.write(outputStream);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /*
+     * Raw
+     */
+
+    /**
+     * Streams the raw data rows into the raw tab.
+     *
+     * @param raw       The raw tab.
+     * @param headerMap A list of the statistics and their associated spreadsheet column.
+     */
+    private void raw(Sheet raw, Map<String, Integer> headerMap) {
         // Create Header
         Row headerRow = raw.createRow(0);
         headerRow.createCell(0).setCellValue("Timestamp");
         headerRow.createCell(1).setCellValue("Time (Seconds)");
-        int currentHeaderColumn = 2;
-        // Stat ID as String | Header column
-        Map<String, Integer> headerMap = new HashMap<>();
         for (Map.Entry<String, String> e : statisticsMap.entrySet()) {
-            headerRow.createCell(currentHeaderColumn).setCellValue(e.getValue());
-            headerMap.put(e.getKey(), currentHeaderColumn);
-            currentHeaderColumn++;
+            headerRow.createCell(headerMap.get(e.getKey())).setCellValue(e.getValue());
         }
 
-        long offset = statistics.keySet().iterator().next();
-
-        int currentRow = 1;
-        for (Map.Entry<Long, Map<String, Integer>> e : statistics.entrySet()) {
-            Row row = raw.createRow(currentRow);
-            row.createCell(0).setCellValue(e.getKey());
-            row.createCell(1).setCellValue(Math.ceil((e.getKey() - offset) / 1000.00));
-            for (Map.Entry<String, Integer> e2 : e.getValue().entrySet()) {
-                try {
-                    row.createCell(headerMap.get(e2.getKey())).setCellValue(e2.getValue());
-                } catch (NullPointerException ignored) {
-                    // Failed to create row. Ignoring and moving on.
-                }
+        long offset = statistics.size() > 0 ? statistics.getTimestamp(0) : 0;
+
+        int[] statColumns = new int[statistics.getColumnCount()];
+        for (int c = 0; c < statColumns.length; c++) {
+            statColumns[c] = headerMap.get(statistics.getId(c));
+        }
+        for (int i = 0; i < statistics.size(); i++) {
+            Row row = raw.createRow(i + 1);
+            long timestamp = statistics.getTimestamp(i);
+            row.createCell(0).setCellValue(timestamp);
+            row.createCell(1).setCellValue(Math.ceil((timestamp - offset) / 1000.00));
+            for (int c = 0; c < statColumns.length; c++) {
+                row.createCell(statColumns[c]).setCellValue(statistics.getValue(c, i));
             }
-            currentRow++;
         }
-
-        visual(workbook, headerMap);
-
-        FileOutputStream outputStream = new FileOutputStream(file);
-        workbook.write(outputStream);
-        workbook.close();
-        outputStream.close();
     }
 
     /*
@@ -294,35 +448,33 @@ public class StatisticsSheetWriter {
         header.setCellStyle(style);
 
         int i = 8;
-        addOverviewStatistic(sheet, i++, "Top Speed", " MPH", MOTOR_SPEED);
-        addOverviewStatistic(sheet, i++, "Remaining Battery", "%", STATE_OF_CHARGE);
-        addOverviewStatistic(sheet, i++, "MC0 Top Current", " A", MOTOR_CONTROLLER_0_CURRENT);
-        addOverviewStatistic(sheet, i++, "MC1 Top Current", " A", MOTOR_CONTROLLER_1_CURRENT);
-        addOverviewStatistic(sheet, i++, "M0 Top Temp", " \u02DAC", MOTOR_CONTROLLER_0_TEMP);
-        addOverviewStatistic(sheet, i++, "M1 Top Temp", " \u02DAC", MOTOR_CONTROLLER_1_TEMP);
+        for (int t = 0; t < trackedStatistics.getDefinitions().size(); t++) {
+            String title = trackedStatistics.getDefinitions().get(t).getTitle();
+            if (title != null) {
+                addOverviewStatistic(sheet, i++, title, trackedStatistics.format(t));
+            }
+        }
 
         setBorder(CellRangeAddress.valueOf("B7:E" + (i - 1)), sheet);
     }
 
     /**
-     * Adds a specified statistic to the chart using a {@link TrackingPolicy}
+     * Adds a tracked statistic to the chart.
      *
-     * @param sheet  The overview tab.
-     * @param rowNo  The row number of where to print the data.
-     * @param title  A descriptive title of the statistic.
-     * @param suffix The suffix of the value.
-     * @param stat   The statistic id.
+     * @param sheet The overview tab.
+     * @param rowNo The row number of where to print the data.
+     * @param title A descriptive title of the statistic.
+     * @param value The formatted value of the statistic.
      */
-    private void addOverviewStatistic(Sheet sheet, int rowNo, String title, String suffix, String stat) {
+    private void addOverviewStatistic(Sheet sheet, int rowNo, String title, String value) {
         sheet.addMergedRegion(CellRangeAddress.valueOf(String.format("B%s:C%s", rowNo, rowNo)));
         sheet.addMergedRegion(CellRangeAddress.valueOf(String.format("D%s:E%s", rowNo, rowNo)));
-        Row row = sheet.createRow(rowNo - 1);
+        Row row = getOrCreateRow(sheet, rowNo - 1);
         Cell titleCell = row.createCell(1);
         titleCell.setCellValue(title + ":");
 
-        TrackingPolicy policy = trackedStatistics.get(stat);
         Cell valueCell = row.createCell(3);
-        valueCell.setCellValue(policy.get() + suffix);
+        valueCell.setCellValue(value);
 
         setBorder(CellRangeAddress.valueOf(String.format("B%s:C%s", rowNo, rowNo)), sheet);
         setBorder(CellRangeAddress.valueOf(String.format("D%s:E%s", rowNo, rowNo)), sheet);
@@ -336,7 +488,7 @@ public class StatisticsSheetWriter {
      */
     private void overviewImageBlock(XSSFWorkbook workbook, Sheet sheet) {
         sheet.addMergedRegion(CellRangeAddress.valueOf("G2:J8"));
-        Row row = sheet.getRow(1);
+        Row row = getOrCreateRow(sheet, 1);
         Cell imageDescription = row.createCell(6);
         imageDescription.setCellValue("Cabinet Logging System by Noah Husby");
 
@@ -361,7 +513,8 @@ public class StatisticsSheetWriter {
      * @param sheet    The overview tab.
      */
     private void overviewMenu(XSSFWorkbook workbook, Sheet sheet) {
-        Row r9 = sheet.getRow(9);
+        // The overview values may not reach the menu rows when few trackers are titled
+        Row r9 = getOrCreateRow(sheet, 9);
         Cell header = r9.createCell(6);
         header.setCellValue("Menu");
 
@@ -374,8 +527,8 @@ public class StatisticsSheetWriter {
         header.setCellStyle(style);
 
         addOverviewMenu(sheet, 11, OVERVIEW_PAGE, "An overview of the session");
-        addOverviewMenu(sheet, 12, "Visual", "Graphical rendering of data");
-        addOverviewMenu(sheet, 13, "Raw", "Raw recorded data");
+        addOverviewMenu(sheet, 12, VISUAL_PAGE, "Graphical rendering of data");
+        addOverviewMenu(sheet, 13, RAW_PAGE, "Raw recorded data");
 
         setBorder(CellRangeAddress.valueOf("G10:J13"), sheet);
     }
@@ -390,7 +543,7 @@ public class StatisticsSheetWriter {
      */
     private void addOverviewMenu(Sheet sheet, int rowNo, String name, String description) {
         sheet.addMergedRegion(CellRangeAddress.valueOf(String.format("H%s:J%s", rowNo, rowNo)));
-        Row row = sheet.getRow(rowNo - 1);
+        Row row = getOrCreateRow(sheet, rowNo - 1);
         CreationHelper helper = sheet.getWorkbook().getCreationHelper();
         XSSFHyperlink link = (XSSFHyperlink) helper.createHyperlink(HyperlinkType.DOCUMENT);
         link.setAddress(String.format("'%s'!A1", name));
@@ -407,42 +560,162 @@ public class StatisticsSheetWriter {
         setBorder(CellRangeAddress.valueOf(String.format("H%s:J%s", rowNo, rowNo)), sheet);
     }
 
+    /**
+     * Gets a row of a sheet, creating it if it does not exist.
+     *
+     * @param sheet The sheet.
+     * @param rowNo The zero-based row number.
+     * @return The row.
+     */
+    private static Row getOrCreateRow(Sheet sheet, int rowNo) {
+        Row row = sheet.getRow(rowNo);
+        return row == null ? sheet.createRow(rowNo) : row;
+    }
+
     /*
      * Visual
      */
 
     /**
      * Creates the visual tab and elements.
+     * The graphs are drawn from a downsampled copy of their statistics on the chart data tab, instead of the raw tab.
      *
-     * @param workbook  The current session's workbook.
-     * @param headerMap A list of the statistics and their associated spreadsheet column.
+     * @param workbook The current session's workbook.
      */
-    private void visual(XSSFWorkbook workbook, Map<String, Integer> headerMap) {
-        XSSFSheet visual = workbook.createSheet("Visual");
-        XSSFSheet raw = workbook.getSheet("Raw");
-
-        addVisualGraph("Speed", new String[]{ MOTOR_SPEED }, 0, 0, 15, 26, visual, raw, headerMap);
-        addVisualGraph("Throttle", new String[]{ "ACC_1", "ACC_2" }, 15, 0, 30, 26, visual, raw, headerMap);
-        addVisualGraph("MC Current", new String[]{ MOTOR_CONTROLLER_0_CURRENT, MOTOR_CONTROLLER_1_CURRENT }, 0, 26, 15, 52, visual, raw, headerMap);
-        addVisualGraph("MC Voltage", new String[]{ "MC0_VOLTAGE", "MC1_VOLTAGE" }, 15, 26, 30, 52, visual, raw, headerMap);
-        addVisualGraph("Steering", new String[]{ "STEER" }, 0, 52, 15, 78, visual, raw, headerMap);
-        addVisualGraph("State of Charge", new String[]{ STATE_OF_CHARGE }, 15, 52, 30, 78, visual, raw, headerMap);
+    private void visual(XSSFWorkbook workbook) throws IOException {
+        XSSFSheet visual = workbook.createSheet(VISUAL_PAGE);
+        String[][] graphs = {
+                { MOTOR_SPEED },
+                { "ACC_1", "ACC_2" },
+                { MOTOR_CONTROLLER_0_CURRENT, MOTOR_CONTROLLER_1_CURRENT },
+                { "MC0_VOLTAGE", "MC1_VOLTAGE" },
+                { "STEER" },
+                { STATE_OF_CHARGE }
+        };
+        List<String> charted = new ArrayList<>();
+        for (String[] graph : graphs) {
+            charted.addAll(Arrays.asList(graph));
+        }
+        XSSFSheet chartData = workbook.createSheet(CHART_DATA_PAGE);
+        Map<String, Integer> chartColumns = new HashMap<>();
+        int rows = chartData(chartData, charted, chartColumns);
+
+        addVisualGraph("Speed", graphs[0], 0, 0, 15, 26, visual, chartData, rows, chartColumns);
+        addVisualGraph("Throttle", graphs[1], 15, 0, 30, 26, visual, chartData, rows, chartColumns);
+        addVisualGraph("MC Current", graphs[2], 0, 26, 15, 52, visual, chartData, rows, chartColumns);
+        addVisualGraph("MC Voltage", graphs[3], 15, 26, 30, 52, visual, chartData, rows, chartColumns);
+        addVisualGraph("Steering", graphs[4], 0, 52, 15, 78, visual, chartData, rows, chartColumns);
+        addVisualGraph("State of Charge", graphs[5], 15, 52, 30, 78, visual, chartData, rows, chartColumns);
+    }
+
+    /**
+     * Writes the minimum and maximum of each charted statistic within equal time buckets to the chart data tab.
+     * The buckets are read from the coarsest level of the {@link StatisticsPyramid} which fits them, and only computed
+     * from the rows when there is no such level.
+     *
+     * @param sheet        The chart data tab.
+     * @param charted      The names of the charted statistics.
+     * @param chartColumns Filled with the chart data column of each charted statistic which exists.
+     * @return The amount of data rows, excluding the header.
+     */
+    private int chartData(XSSFSheet sheet, List<String> charted, Map<String, Integer> chartColumns) throws IOException {
+        List<Integer> columns = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (String name : charted) {
+            int column = getColumnFromStatistic(name);
+            if (column >= 0 && !names.contains(name)) {
+                names.add(name);
+                columns.add(column);
+            }
+        }
+        long first = statistics.size() > 0 ? statistics.getTimestamp(0) : 0;
+        long last = statistics.size() > 0 ? statistics.getTimestamp(statistics.size() - 1) : 0;
+        long width = Math.max(1, (last - first) / CHART_BUCKETS + 1);
+        int buckets = statistics.size() > 0 ? (int) ((last - first) / width) + 1 : 0;
+        // Two points per bucket, in time order
+        double[][] points = new double[names.size()][buckets * 2];
+        MinMaxBucketer[] bucketers = new MinMaxBucketer[names.size()];
+        for (int i = 0; i < bucketers.length; i++) {
+            double[] series = points[i];
+            Arrays.fill(series, Double.NaN);
+            bucketers[i] = new MinMaxBucketer(first, width, (bucket, timestamp, value) -> {
+                int point = (int) bucket * 2;
+                series[Double.isNaN(series[point]) ? point : point + 1] = value;
+            });
+        }
+
+        boolean fromPyramid = false;
+        if (pyramidFile != null && pyramidFile.exists()) {
+            try (
+                    StatisticsPyramid.Reader pyramid = new StatisticsPyramid.Reader(pyramidFile);
+            ) {
+                int level = pyramid.getColumns() == statistics.getColumnCount() ? pyramid.selectLevel(width) : -1;
+                if (level >= 0) {
+                    for (int i = 0; i < bucketers.length; i++) {
+                        pyramid.scan(level, columns.get(i), bucketers[i]::post);
+                    }
+                    fromPyramid = true;
+                }
+            }
+        }
+        if (!fromPyramid) {
+            for (int row = 0; row < statistics.size(); row++) {
+                long timestamp = statistics.getTimestamp(row);
+                for (int i = 0; i < bucketers.length; i++) {
+                    bucketers[i].post(timestamp, statistics.getValue(columns.get(i), row));
+                }
+            }
+        }
+        for (MinMaxBucketer bucketer : bucketers) {
+            bucketer.flush();
+        }
+
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("Time (Seconds)");
+        for (int i = 0; i < names.size(); i++) {
+            header.createCell(i + 1).setCellValue(names.get(i));
+            chartColumns.put(names.get(i), i + 1);
+        }
+        int rows = 0;
+        for (int point = 0; point < buckets * 2; point++) {
+            boolean empty = true;
+            for (double[] series : points) {
+                empty &= Double.isNaN(series[point]);
+            }
+            if (empty) {
+                continue;
+            }
+            Row row = sheet.createRow(++rows);
+            row.createCell(0).setCellValue((point / 2) * width / 1000.0);
+            for (int i = 0; i < points.length; i++) {
+                // A bucket with a single point repeats it
+                double value = Double.isNaN(points[i][point]) ? points[i][point & ~1] : points[i][point];
+                if (!Double.isNaN(value)) {
+                    row.createCell(i + 1).setCellValue(value);
+                }
+            }
+        }
+        return rows;
     }
 
     /**
      * Adds a graph to the visual page.
      *
-     * @param title      The title of the graph.
-     * @param statistics An array of all statistics to graph.
-     * @param col1       Upper left-hand anchor.
-     * @param row1       Upper left-hand anchor.
-     * @param col2       Lower right-hand anchor.
-     * @param row2       Lower right-hand anchor.
-     * @param visual     The visual tab.
-     * @param raw        The raw tab.
-     * @param headerMap  A list of the statistics and their associated spreadsheet column.
+     * @param title        The title of the graph.
+     * @param statistics   An array of all statistics to graph.
+     * @param col1         Upper left-hand anchor.
+     * @param row1         Upper left-hand anchor.
+     * @param col2         Lower right-hand anchor.
+     * @param row2         Lower right-hand anchor.
+     * @param visual       The visual tab.
+     * @param chartData    The chart data tab.
+     * @param rows         The amount of data rows in the chart data tab.
+     * @param chartColumns The charted statistics and their associated chart data column.
      */
-    private void addVisualGraph(String title, String[] statistics, int col1, int row1, int col2, int row2, XSSFSheet visual, XSSFSheet raw, Map<String, Integer> headerMap) {
+    private void addVisualGraph(String title, String[] statistics, int col1, int row1, int col2, int row2, XSSFSheet visual, XSSFSheet chartData, int rows, Map<String, Integer> chartColumns) {
+        if (rows == 0 || Arrays.stream(statistics).noneMatch(chartColumns::containsKey)) {
+            return;
+        }
         XSSFDrawing drawing = visual.createDrawingPatriarch();
         XSSFClientAnchor anchor = drawing.createAnchor(0, 0, 0, 0, col1, row1, col2, row2);
         XSSFChart chart = drawing.createChart(anchor);
@@ -456,13 +729,15 @@ public class StatisticsSheetWriter {
 
         XDDFLineChartData data = (XDDFLineChartData) chart.createData(ChartTypes.LINE, bottomAxis, leftAxis);
         data.setVaryColors(false);
-        int rows = raw.getPhysicalNumberOfRows();
-        int skip = rows / 12;
-        XDDFNumericalDataSource<Double> timestamps = XDDFDataSourcesFactory.fromNumericCellRange(raw, new CellRangeAddress(1, rows - 1, 1, 1));
+        int skip = Math.max(1, rows / 12);
+        XDDFNumericalDataSource<Double> timestamps = XDDFDataSourcesFactory.fromNumericCellRange(chartData, new CellRangeAddress(1, rows, 0, 0));
 
         for (String statistic : statistics) {
-            int statColumn = getRowFromStatistic(statistic, headerMap);
-            XDDFNumericalDataSource<Double> dataSource = XDDFDataSourcesFactory.fromNumericCellRange(raw, new CellRangeAddress(1, rows - 1, statColumn, statColumn));
+            Integer statColumn = chartColumns.get(statistic);
+            if (statColumn == null) {
+                continue;
+            }
+            XDDFNumericalDataSource<Double> dataSource = XDDFDataSourcesFactory.fromNumericCellRange(chartData, new CellRangeAddress(1, rows, statColumn, statColumn));
             XDDFLineChartData.Series series = (XDDFLineChartData.Series) data.addSeries(timestamps, dataSource);
             series.setTitle(statistic, null);
             series.setSmooth(true);
@@ -478,16 +753,15 @@ public class StatisticsSheetWriter {
     }
 
     /**
-     * Gets the column of a statistic from its ID.
+     * Gets the table column of a statistic from its name.
      *
-     * @param statistic The ID of the statistic.
-     * @param headerMap A list of the statistics and their associated spreadsheet column.
-     * @return The column number if the statistic exists, -1 otherwise.
+     * @param statistic The name of the statistic.
+     * @return The column if the statistic exists, -1 otherwise.
      */
-    private int getRowFromStatistic(String statistic, Map<String, Integer> headerMap) {
-        for (Map.Entry<String, String> e : statisticsMap.entrySet()) {
-            if (e.getValue().equalsIgnoreCase(statistic)) {
-                return headerMap.get(e.getKey());
+    private int getColumnFromStatistic(String statistic) {
+        for (int c = 0; c < statistics.getColumnCount(); c++) {
+            if (statistic.equalsIgnoreCase(statisticsMap.get(statistics.getId(c)))) {
+                return c;
             }
         }
         return -1;
@@ -0,0 +1,350 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A columnar, primitive-backed table of statistic samples.
+ * <p>
+ * Rows are keyed by a sorted {@code long[]} timestamp column, and each statistic is stored in its own {@code int[]}
+ * column. Columns grow in chunks and are only allocated once a statistic receives its first sample.
+ *
+ * @author Noah Husby
+ */
+public class StatisticsTable {
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_INDEXED_ID = 0xFFFF;
+
+    private final List<String> ids;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final int[] columnsById;
+    private final int[][] values;
+    private final BitSet[] present;
+    private long[] timestamps = new long[CHUNK_SIZE];
+    private int rows = 0;
+    private boolean sorted = true;
+
+    /**
+     * Creates a new table.
+     *
+     * @param ids The statistic ids, in column order.
+     */
+    public StatisticsTable(Collection<String> ids) {
+        this.ids = Collections.unmodifiableList(new ArrayList<>(ids));
+        int maxId = -1;
+        for (int i = 0; i < this.ids.size(); i++) {
+            columns.put(this.ids.get(i), i);
+            if (Util.isInteger(this.ids.get(i))) {
+                int id = Integer.parseInt(this.ids.get(i));
+                if (id >= 0 && id <= MAX_INDEXED_ID) {
+                    maxId = Math.max(maxId, id);
+                }
+            }
+        }
+        columnsById = new int[maxId + 1];
+        Arrays.fill(columnsById, -1);
+        for (int i = 0; i < this.ids.size(); i++) {
+            if (Util.isInteger(this.ids.get(i))) {
+                int id = Integer.parseInt(this.ids.get(i));
+                if (id >= 0 && id <= MAX_INDEXED_ID) {
+                    columnsById[id] = i;
+                }
+            }
+        }
+        values = new int[this.ids.size()][];
+        present = new BitSet[this.ids.size()];
+        for (int i = 0; i < present.length; i++) {
+            present[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Posts a sample to the table.
+     *
+     * @param timestamp The timestamp of the sample.
+     * @param column    The column of the statistic, or -1 if the statistic is not tracked.
+     * @param value     The value of the sample.
+     */
+    public void post(long timestamp, int column, int value) {
+        int row = rows - 1;
+        if (rows == 0 || timestamps[row] != timestamp) {
+            if (rows > 0 && timestamp < timestamps[row]) {
+                sorted = false;
+            }
+            row = addRow(timestamp);
+        }
+        if (column >= 0) {
+            column(column)[row] = value;
+            present[column].set(row);
+        }
+    }
+
+    /**
+     * Records a value for an existing row.
+     *
+     * @param column The column.
+     * @param row    The row.
+     * @param value  The value.
+     */
+    public void put(int column, int row, int value) {
+        column(column)[row] = value;
+        present[column].set(row);
+    }
+
+    /**
+     * Appends the rows of another table with the same columns to this table.
+     * The combined table must be finished again before it is read.
+     *
+     * @param other The table to append.
+     */
+    public void append(StatisticsTable other) {
+        if (other.rows == 0) {
+            return;
+        }
+        if (rows > 0 && other.timestamps[0] <= timestamps[rows - 1]) {
+            sorted = false;
+        }
+        sorted &= other.sorted;
+        ensureCapacity(rows + other.rows);
+        System.arraycopy(other.timestamps, 0, timestamps, rows, other.rows);
+        for (int c = 0; c < values.length; c++) {
+            if (other.values[c] == null) {
+                continue;
+            }
+            System.arraycopy(other.values[c], 0, column(c), rows, other.rows);
+            BitSet otherPresent = other.present[c];
+            for (int row = otherPresent.nextSetBit(0); row >= 0 && row < other.rows; row = otherPresent.nextSetBit(row + 1)) {
+                present[c].set(rows + row);
+            }
+        }
+        rows += other.rows;
+    }
+
+    /**
+     * Sorts the table by timestamp, combining any rows which share a timestamp.
+     * Later samples take precedence over earlier ones.
+     */
+    public void finish() {
+        if (sorted) {
+            return;
+        }
+        int[] order = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            order[i] = i;
+        }
+        sortByTimestamp(order, new int[rows], 0, rows);
+
+        long[] sortedTimestamps = new long[timestamps.length];
+        int[][] sortedValues = new int[values.length][];
+        BitSet[] sortedPresent = new BitSet[present.length];
+        for (int c = 0; c < values.length; c++) {
+            sortedValues[c] = values[c] == null ? null : new int[timestamps.length];
+            sortedPresent[c] = new BitSet();
+        }
+        int out = -1;
+        for (int i = 0; i < rows; i++) {
+            int source = order[i];
+            if (out < 0 || sortedTimestamps[out] != timestamps[source]) {
+                sortedTimestamps[++out] = timestamps[source];
+            }
+            for (int c = 0; c < values.length; c++) {
+                if (present[c].get(source)) {
+                    sortedValues[c][out] = values[c][source];
+                    sortedPresent[c].set(out);
+                }
+            }
+        }
+        timestamps = sortedTimestamps;
+        System.arraycopy(sortedValues, 0, values, 0, values.length);
+        System.arraycopy(sortedPresent, 0, present, 0, present.length);
+        rows = out + 1;
+        sorted = true;
+    }
+
+    /**
+     * Forward-fills every column, so each row holds the last known value of every statistic.
+     * Statistics which have not been recorded yet are filled with zero.
+     */
+    public void fill() {
+        for (int c = 0; c < values.length; c++) {
+            int[] column = values[c];
+            if (column == null) {
+                continue;
+            }
+            BitSet columnPresent = present[c];
+            int last = 0;
+            for (int row = 0; row < rows; row++) {
+                if (columnPresent.get(row)) {
+                    last = column[row];
+                } else {
+                    column[row] = last;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the column of a statistic.
+     *
+     * @param id The statistic id.
+     * @return The column if the statistic exists, -1 otherwise.
+     */
+    public int getColumn(String id) {
+        Integer column = columns.get(id);
+        return column == null ? -1 : column;
+    }
+
+    /**
+     * Gets the column of a numeric statistic id without allocating.
+     *
+     * @param id The statistic id.
+     * @return The column if the statistic exists, -1 otherwise.
+     */
+    public int getColumn(int id) {
+        if (id >= 0 && id < columnsById.length) {
+            return columnsById[id];
+        }
+        return id > MAX_INDEXED_ID ? getColumn(String.valueOf(id)) : -1;
+    }
+
+    /**
+     * Gets the statistic id of a column.
+     *
+     * @param column The column.
+     * @return The statistic id.
+     */
+    public String getId(int column) {
+        return ids.get(column);
+    }
+
+    /**
+     * @return The statistic ids, in column order.
+     */
+    public List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * @return The amount of columns.
+     */
+    public int getColumnCount() {
+        return ids.size();
+    }
+
+    /**
+     * @return The amount of rows.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Gets the timestamp of a row.
+     *
+     * @param row The row.
+     * @return The timestamp.
+     */
+    public long getTimestamp(int row) {
+        return timestamps[row];
+    }
+
+    /**
+     * Gets a value from the table.
+     *
+     * @param column The column.
+     * @param row    The row.
+     * @return The value, or zero if the statistic was never recorded.
+     */
+    public int getValue(int column, int row) {
+        return values[column] == null ? 0 : values[column][row];
+    }
+
+    /**
+     * Checks if a value was recorded for a row, rather than being filled.
+     *
+     * @param column The column.
+     * @param row    The row.
+     * @return True if the value was recorded, false otherwise.
+     */
+    public boolean isPresent(int column, int row) {
+        return present[column].get(row);
+    }
+
+    private int addRow(long timestamp) {
+        ensureCapacity(rows + 1);
+        timestamps[rows] = timestamp;
+        return rows++;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= timestamps.length) {
+            return;
+        }
+        int capacity = Math.max(required, timestamps.length + Math.max(CHUNK_SIZE, timestamps.length >> 1));
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        for (int c = 0; c < values.length; c++) {
+            if (values[c] != null) {
+                values[c] = Arrays.copyOf(values[c], capacity);
+            }
+        }
+    }
+
+    private int[] column(int column) {
+        if (values[column] == null) {
+            values[column] = new int[timestamps.length];
+        }
+        return values[column];
+    }
+
+    /**
+     * Stable merge sort of row indices by timestamp.
+     */
+    private void sortByTimestamp(int[] order, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortByTimestamp(order, buffer, from, mid);
+        sortByTimestamp(order, buffer, mid, to);
+        if (timestamps[order[mid - 1]] <= timestamps[order[mid]]) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && timestamps[buffer[left]] <= timestamps[buffer[right]])) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+}
@@ -24,18 +24,11 @@ import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * A utility class
@@ -60,6 +53,46 @@ public class Util {
         }
     }
 
+    /**
+     * Checks if an Accept-Encoding header lists a content coding, or a wildcard, with a quality above zero
+     *
+     * @param acceptEncoding The Accept-Encoding header, or null
+     * @param coding         The content coding, such as gzip
+     * @return True if the coding is accepted, false otherwise
+     */
+    public static boolean acceptsEncoding(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double quality = null;
+        Double wildcard = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parameters = element.split(";");
+            String name = parameters[0].trim();
+            double q = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(coding)) {
+                quality = q;
+            } else if (name.equals("*")) {
+                wildcard = q;
+            }
+        }
+        // An explicit quality takes precedence over the wildcard
+        if (quality != null) {
+            return quality > 0;
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
     /**
      * Checks if a child file exists under a parent folder
      *
@@ -71,34 +104,6 @@ public class Util {
         return new File(parent, child).exists();
     }
 
-    /**
-     * Zips entire folder into zip file
-     *
-     * @param folder  The folder to be zipped
-     * @param zipFile The destination zip folder
-     * @throws IOException If the file cannot be created
-     */
-    public static void zipFolder(File folder, File zipFile) throws IOException {
-        Path p = Files.createFile(Paths.get(zipFile.getAbsolutePath()));
-        try (ZipOutputStream zs = new ZipOutputStream(Files.newOutputStream(p))) {
-            Path pp = Paths.get(folder.getAbsolutePath());
-            try (Stream<Path> stream = Files.walk(pp)) {
-                stream.filter(path -> !Files.isDirectory(path) && !path.toString().equals(p.toString()))
-                        .forEach(path -> {
-                                    ZipEntry zipEntry = new ZipEntry(pp.relativize(path).toString());
-                                    try {
-                                        zs.putNextEntry(zipEntry);
-                                        Files.copy(path, zs);
-                                        zs.closeEntry();
-                                    } catch (IOException e) {
-                                        log.error("Error while zipping folder.", e);
-                                    }
-                                }
-                        );
-            }
-        }
-    }
-
     /**
      * Converts amount of bytes to human-readable format
      *
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util;
+
+import lombok.Getter;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads, which are looked up reflectively so cabinet still builds and runs on older JDKs.
+ * Virtual threads are used when {@code CABINET_VIRTUAL_THREADS} is set and the JDK supports them.
+ *
+ * @author Noah Husby
+ */
+@UtilityClass
+@Slf4j
+public class VirtualThreads {
+    @Getter
+    private static final boolean enabled = isRequestedAndSupported();
+
+    /**
+     * Creates a factory of named virtual threads.
+     *
+     * @param prefix The prefix of the thread names, which are numbered from 1.
+     * @return {@link ThreadFactory}
+     * @throws IllegalStateException If virtual threads are not enabled.
+     */
+    public static ThreadFactory factory(String prefix) {
+        if (!enabled) {
+            throw new IllegalStateException("Virtual threads are not enabled.");
+        }
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread factory.", e);
+        }
+    }
+
+    /**
+     * Creates an executor which starts a new virtual thread for each task.
+     *
+     * @param prefix The prefix of the thread names.
+     * @return {@link ExecutorService}
+     * @throws IllegalStateException If virtual threads are not enabled.
+     */
+    public static ExecutorService newExecutor(String prefix) {
+        ThreadFactory factory = factory(prefix);
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor.", e);
+        }
+    }
+
+    private static boolean isRequestedAndSupported() {
+        if (!Boolean.parseBoolean(System.getenv("CABINET_VIRTUAL_THREADS"))) {
+            return false;
+        }
+        // JDK 19 and 20 have the methods, but they throw unless preview features are enabled, so a thread is started.
+        // The probe must not run code of this class, which is still being initialized.
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Thread probe = (Thread) builderClass.getMethod("start", Runnable.class).invoke(builder, (Runnable) Thread::yield);
+            probe.join();
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            ((ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory)).shutdown();
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            log.warn("Virtual threads are not supported by this JDK ({}). Falling back to platform threads.", System.getProperty("java.version"));
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        log.info("Using virtual threads for request handling and I/O.");
+        return true;
+    }
+}
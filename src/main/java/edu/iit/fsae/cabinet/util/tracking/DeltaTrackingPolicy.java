@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+/**
+ * A policy for returning the change of a specific statistic, from its first value to its last value.
+ * A negative delta is a drop, such as the state of charge used in a session.
+ *
+ * @author Noah Husby
+ */
+public class DeltaTrackingPolicy implements TrackingPolicy {
+
+    private long first = 0;
+    private long last = 0;
+    private boolean posted = false;
+
+    @Override
+    public void post(long timestamp, long value) {
+        if (!posted) {
+            first = value;
+            posted = true;
+        }
+        last = value;
+    }
+
+    @Override
+    public double get() {
+        return posted ? last - first : Double.NaN;
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (other instanceof DeltaTrackingPolicy && ((DeltaTrackingPolicy) other).posted) {
+            DeltaTrackingPolicy o = (DeltaTrackingPolicy) other;
+            post(0, o.first);
+            last = o.last;
+        }
+    }
+}
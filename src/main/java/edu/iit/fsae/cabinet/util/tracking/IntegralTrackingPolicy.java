@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+/**
+ * A policy for returning the integral of a specific statistic over time, in value-seconds.
+ * When a secondary statistic is set, the product of both statistics is integrated instead, such as current and voltage
+ * for energy. Each value is held until the next sample of either statistic.
+ * <p>
+ * When merging, the gap between the last sample of this policy and the first complete sample of the other is bridged
+ * with the last product of this policy. Samples the other policy received before it had seen both statistics are not
+ * counted.
+ *
+ * @author Noah Husby
+ */
+public class IntegralTrackingPolicy implements TrackingPolicy {
+
+    private final boolean product;
+    private final double scale;
+    private double sum = 0;
+    private boolean hasPrimary = false;
+    private long primary = 0;
+    private boolean hasSecondary = false;
+    private long secondary = 0;
+    private long firstTimestamp = Long.MIN_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * @param product Whether the primary statistic is multiplied by a secondary statistic.
+     * @param scale   The factor the integral is multiplied by, such as to convert watt-seconds to watt-hours.
+     */
+    public IntegralTrackingPolicy(boolean product, double scale) {
+        this.product = product;
+        this.scale = scale;
+    }
+
+    @Override
+    public void post(long timestamp, long value) {
+        advance(timestamp);
+        primary = value;
+        hasPrimary = true;
+        mark(timestamp);
+    }
+
+    @Override
+    public void postSecondary(long timestamp, long value) {
+        if (!product) {
+            return;
+        }
+        advance(timestamp);
+        secondary = value;
+        hasSecondary = true;
+        mark(timestamp);
+    }
+
+    @Override
+    public double get() {
+        return firstTimestamp == Long.MIN_VALUE ? Double.NaN : sum * scale;
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (!(other instanceof IntegralTrackingPolicy)) {
+            return;
+        }
+        IntegralTrackingPolicy o = (IntegralTrackingPolicy) other;
+        if (o.firstTimestamp != Long.MIN_VALUE) {
+            advance(o.firstTimestamp);
+            if (firstTimestamp == Long.MIN_VALUE) {
+                firstTimestamp = o.firstTimestamp;
+            }
+            lastTimestamp = o.lastTimestamp;
+        }
+        sum += o.sum;
+        if (o.hasPrimary) {
+            primary = o.primary;
+            hasPrimary = true;
+        }
+        if (o.hasSecondary) {
+            secondary = o.secondary;
+            hasSecondary = true;
+        }
+    }
+
+    private boolean isReady() {
+        return hasPrimary && (hasSecondary || !product);
+    }
+
+    private void advance(long timestamp) {
+        if (isReady() && lastTimestamp != Long.MIN_VALUE && timestamp > lastTimestamp) {
+            sum += (product ? (double) primary * secondary : primary) * (timestamp - lastTimestamp) / 1000.0;
+        }
+    }
+
+    private void mark(long timestamp) {
+        if (!isReady()) {
+            return;
+        }
+        if (firstTimestamp == Long.MIN_VALUE) {
+            firstTimestamp = timestamp;
+        }
+        lastTimestamp = timestamp;
+    }
+}
@@ -21,21 +21,30 @@
 package edu.iit.fsae.cabinet.util.tracking;
 
 /**
- * A policy for returning the maximum of a specific statistic.
+ * A policy for returning the last value of a specific statistic.
  *
  * @author Noah Husby
  */
 public class LastTrackingPolicy implements TrackingPolicy {
 
     private long value = Long.MIN_VALUE;
+    private boolean posted = false;
 
     @Override
-    public void post(long value) {
+    public void post(long timestamp, long value) {
         this.value = value;
+        this.posted = true;
     }
 
     @Override
-    public long get() {
-        return value;
+    public double get() {
+        return posted ? value : Double.NaN;
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (other instanceof LastTrackingPolicy && ((LastTrackingPolicy) other).posted) {
+            post(0, ((LastTrackingPolicy) other).value);
+        }
     }
 }
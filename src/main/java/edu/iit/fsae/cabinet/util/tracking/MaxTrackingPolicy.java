@@ -28,16 +28,25 @@ package edu.iit.fsae.cabinet.util.tracking;
 public class MaxTrackingPolicy implements TrackingPolicy {
 
     private long value = Long.MIN_VALUE;
+    private boolean posted = false;
 
     @Override
-    public void post(long value) {
-        if (value > this.value) {
+    public void post(long timestamp, long value) {
+        if (!posted || value > this.value) {
             this.value = value;
         }
+        posted = true;
     }
 
     @Override
-    public long get() {
-        return value;
+    public double get() {
+        return posted ? value : Double.NaN;
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (other instanceof MaxTrackingPolicy && ((MaxTrackingPolicy) other).posted) {
+            post(0, ((MaxTrackingPolicy) other).value);
+        }
     }
 }
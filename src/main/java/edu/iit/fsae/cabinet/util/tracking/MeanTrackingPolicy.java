@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+/**
+ * A policy for returning the mean of a specific statistic.
+ * The mean and variance are updated incrementally, which keeps them accurate over long sessions.
+ *
+ * @author Noah Husby
+ */
+public class MeanTrackingPolicy implements TrackingPolicy {
+
+    protected long count = 0;
+    protected double mean = 0;
+    protected double m2 = 0;
+
+    @Override
+    public void post(long timestamp, long value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    @Override
+    public double get() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (!(other instanceof MeanTrackingPolicy) || ((MeanTrackingPolicy) other).count == 0) {
+            return;
+        }
+        MeanTrackingPolicy o = (MeanTrackingPolicy) other;
+        long total = count + o.count;
+        double delta = o.mean - mean;
+        mean += delta * o.count / total;
+        m2 += o.m2 + delta * delta * count * o.count / total;
+        count = total;
+    }
+}
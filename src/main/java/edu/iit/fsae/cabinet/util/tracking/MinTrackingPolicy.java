@@ -21,23 +21,32 @@
 package edu.iit.fsae.cabinet.util.tracking;
 
 /**
- * A policy for returning the maximum of a specific statistic.
+ * A policy for returning the minimum of a specific statistic.
  *
  * @author Noah Husby
  */
 public class MinTrackingPolicy implements TrackingPolicy {
 
     private long value = Long.MAX_VALUE;
+    private boolean posted = false;
 
     @Override
-    public void post(long value) {
-        if (value < this.value) {
+    public void post(long timestamp, long value) {
+        if (!posted || value < this.value) {
             this.value = value;
         }
+        posted = true;
     }
 
     @Override
-    public long get() {
-        return value;
+    public double get() {
+        return posted ? value : Double.NaN;
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (other instanceof MinTrackingPolicy && ((MinTrackingPolicy) other).posted) {
+            post(0, ((MinTrackingPolicy) other).value);
+        }
     }
 }
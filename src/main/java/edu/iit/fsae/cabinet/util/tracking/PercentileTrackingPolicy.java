@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+/**
+ * A policy for returning an estimated percentile of a specific statistic, using a {@link TDigest}.
+ *
+ * @author Noah Husby
+ */
+public class PercentileTrackingPolicy implements TrackingPolicy {
+
+    private final double quantile;
+    private final TDigest digest = new TDigest();
+
+    /**
+     * @param percentile The percentile, between 0 and 100.
+     */
+    public PercentileTrackingPolicy(double percentile) {
+        this.quantile = percentile / 100;
+    }
+
+    @Override
+    public void post(long timestamp, long value) {
+        digest.add(value);
+    }
+
+    @Override
+    public double get() {
+        return digest.quantile(quantile);
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (other instanceof PercentileTrackingPolicy) {
+            digest.merge(((PercentileTrackingPolicy) other).digest);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+/**
+ * A policy for returning the largest rate of change of a specific statistic between two consecutive samples,
+ * in value per second. Falling rates are counted by their magnitude.
+ *
+ * @author Noah Husby
+ */
+public class RateOfChangeTrackingPolicy implements TrackingPolicy {
+
+    private double rate = 0;
+    private boolean posted = false;
+    private boolean measured = false;
+    private long firstTimestamp;
+    private long firstValue;
+    private long lastTimestamp;
+    private long lastValue;
+
+    @Override
+    public void post(long timestamp, long value) {
+        if (!posted) {
+            firstTimestamp = timestamp;
+            firstValue = value;
+            posted = true;
+        } else if (timestamp > lastTimestamp) {
+            rate = Math.max(rate, Math.abs((double) (value - lastValue) * 1000 / (timestamp - lastTimestamp)));
+            measured = true;
+        }
+        lastTimestamp = timestamp;
+        lastValue = value;
+    }
+
+    @Override
+    public double get() {
+        return measured ? rate : Double.NaN;
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (!(other instanceof RateOfChangeTrackingPolicy) || !((RateOfChangeTrackingPolicy) other).posted) {
+            return;
+        }
+        RateOfChangeTrackingPolicy o = (RateOfChangeTrackingPolicy) other;
+        post(o.firstTimestamp, o.firstValue);
+        if (o.measured) {
+            rate = Math.max(rate, o.rate);
+            measured = true;
+        }
+        lastTimestamp = o.lastTimestamp;
+        lastValue = o.lastValue;
+    }
+}
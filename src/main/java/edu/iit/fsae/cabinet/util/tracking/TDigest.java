@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+import java.util.Arrays;
+
+/**
+ * A merging t-digest, which estimates quantiles of a stream of values in a bounded amount of memory.
+ * <p>
+ * Values are buffered, and the buffer is periodically sorted and merged into a small set of weighted centroids. The
+ * size of each centroid is limited by the arcsine scale function, so centroids near the tails stay small and extreme
+ * quantiles remain accurate. Digests of separate parts of a stream can be merged.
+ *
+ * @author Noah Husby
+ */
+public class TDigest {
+
+    private static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids = 0;
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered = 0;
+    private double totalWeight = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression The compression factor. Larger values keep more centroids, and give more accurate estimates.
+     */
+    public TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2 + 10;
+        means = new double[capacity];
+        weights = new double[capacity];
+        bufferMeans = new double[capacity * 20];
+        bufferWeights = new double[capacity * 20];
+    }
+
+    /**
+     * Adds a value to the digest.
+     *
+     * @param value The value.
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Merges another digest into this one.
+     *
+     * @param other The digest to merge.
+     */
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Estimates a quantile.
+     *
+     * @param q The quantile, between 0 and 1.
+     * @return The estimated value, or NaN if the digest is empty.
+     */
+    public double quantile(double q) {
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        double index = q * totalWeight;
+        if (index <= weights[0] / 2) {
+            return min + (means[0] - min) * (index / (weights[0] / 2));
+        }
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (index <= cumulative + gap) {
+                return means[i] + (means[i + 1] - means[i]) * ((index - cumulative) / gap);
+            }
+            cumulative += gap;
+        }
+        double tail = weights[centroids - 1] / 2;
+        return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(1, (index - cumulative) / tail);
+    }
+
+    private void add(double mean, double weight) {
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        min = Math.min(min, mean);
+        max = Math.max(max, mean);
+    }
+
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        sort(bufferMeans, bufferWeights, 0, buffered - 1);
+        for (int i = 0; i < buffered; i++) {
+            totalWeight += bufferWeights[i];
+        }
+        // The centroids are already sorted, so they only have to be merged with the sorted buffer
+        int count = centroids + buffered;
+        double[] allMeans = new double[count];
+        double[] allWeights = new double[count];
+        int c = 0;
+        int b = 0;
+        for (int i = 0; i < count; i++) {
+            if (b >= buffered || (c < centroids && means[c] <= bufferMeans[b])) {
+                allMeans[i] = means[c];
+                allWeights[i] = weights[c++];
+            } else {
+                allMeans[i] = bufferMeans[b];
+                allWeights[i] = bufferWeights[b++];
+            }
+        }
+        buffered = 0;
+
+        centroids = 0;
+        double weightSoFar = 0;
+        double limit = totalWeight * integratedQ(integratedK(0) + 1);
+        double currentMean = allMeans[0];
+        double currentWeight = allWeights[0];
+        for (int i = 1; i < count; i++) {
+            if (weightSoFar + currentWeight + allWeights[i] <= limit) {
+                currentWeight += allWeights[i];
+                currentMean += (allMeans[i] - currentMean) * allWeights[i] / currentWeight;
+            } else {
+                weightSoFar += currentWeight;
+                emit(currentMean, currentWeight);
+                limit = totalWeight * integratedQ(integratedK(weightSoFar / totalWeight) + 1);
+                currentMean = allMeans[i];
+                currentWeight = allWeights[i];
+            }
+        }
+        emit(currentMean, currentWeight);
+    }
+
+    private static void sort(double[] keys, double[] values, int from, int to) {
+        while (to - from > 16) {
+            double pivot = keys[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound the stack depth
+            if (j - from < to - i) {
+                sort(keys, values, from, j);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && keys[j - 1] > keys[j]; j--) {
+                swap(keys, values, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(double[] keys, double[] values, int a, int b) {
+        double key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        double value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+    private void emit(double mean, double weight) {
+        if (centroids == means.length) {
+            means = Arrays.copyOf(means, centroids * 2);
+            weights = Arrays.copyOf(weights, centroids * 2);
+        }
+        means[centroids] = mean;
+        weights[centroids] = weight;
+        centroids++;
+    }
+
+    private double integratedK(double q) {
+        return compression * (Math.asin(2 * Math.min(1, q) - 1) / Math.PI + 0.5);
+    }
+
+    private double integratedQ(double k) {
+        return (Math.sin(Math.min(k, compression) * Math.PI / compression - Math.PI / 2) + 1) / 2;
+    }
+}
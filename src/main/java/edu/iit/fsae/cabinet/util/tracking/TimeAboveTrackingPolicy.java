@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+/**
+ * A policy for returning the amount of seconds a specific statistic spent above a threshold.
+ * Each value is held until the next sample.
+ *
+ * @author Noah Husby
+ */
+public class TimeAboveTrackingPolicy implements TrackingPolicy {
+
+    private final double threshold;
+    private long duration = 0;
+    private boolean posted = false;
+    private long firstTimestamp;
+    private long firstValue;
+    private long lastTimestamp;
+    private long lastValue;
+
+    /**
+     * @param threshold The threshold, which values have to exceed.
+     */
+    public TimeAboveTrackingPolicy(double threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void post(long timestamp, long value) {
+        if (!posted) {
+            firstTimestamp = timestamp;
+            firstValue = value;
+            posted = true;
+        } else if (lastValue > threshold && timestamp > lastTimestamp) {
+            duration += timestamp - lastTimestamp;
+        }
+        lastTimestamp = timestamp;
+        lastValue = value;
+    }
+
+    @Override
+    public double get() {
+        return posted ? duration / 1000.0 : Double.NaN;
+    }
+
+    @Override
+    public void merge(TrackingPolicy other) {
+        if (!(other instanceof TimeAboveTrackingPolicy) || !((TimeAboveTrackingPolicy) other).posted) {
+            return;
+        }
+        TimeAboveTrackingPolicy o = (TimeAboveTrackingPolicy) other;
+        post(o.firstTimestamp, o.firstValue);
+        duration += o.duration;
+        lastTimestamp = o.lastTimestamp;
+        lastValue = o.lastValue;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+import lombok.Getter;
+
+/**
+ * The definition of a tracked statistic, as read from the tracker configuration.
+ *
+ * @author Noah Husby
+ */
+@Getter
+public class TrackerDefinition {
+    /**
+     * The key of the tracker in the API.
+     */
+    private String name;
+    /**
+     * The title of the tracker on the overview sheet, or null to leave it off the sheet.
+     */
+    private String title;
+    /**
+     * The name of the tracked statistic.
+     */
+    private String statistic;
+    /**
+     * The name of the statistic which the tracked statistic is multiplied by, for integrals.
+     */
+    private String secondary;
+    /**
+     * The type of tracker, as registered in the {@link TrackerRegistry}.
+     */
+    private String type;
+    private String suffix = "";
+    private Double threshold;
+    private Double percentile;
+    private double scale = 1;
+
+    private TrackerDefinition() {
+    }
+
+    /**
+     * Creates a definition outside of the tracker configuration, such as for a query.
+     *
+     * @param name       The name of the tracker.
+     * @param statistic  The name of the tracked statistic.
+     * @param type       The type of tracker.
+     * @param threshold  The threshold of time above trackers, or null.
+     * @param percentile The percentile of percentile trackers, or null.
+     */
+    public TrackerDefinition(String name, String statistic, String type, Double threshold, Double percentile) {
+        this.name = name;
+        this.statistic = statistic;
+        this.type = type;
+        this.threshold = threshold;
+        this.percentile = percentile;
+    }
+
+    /**
+     * Checks that the definition is complete.
+     *
+     * @throws IllegalArgumentException If a required property is missing or invalid.
+     */
+    public void validate() {
+        if (name == null || statistic == null || type == null) {
+            throw new IllegalArgumentException("Trackers require a 'name', 'statistic' and 'type'.");
+        }
+        if (!TrackerRegistry.isRegistered(type)) {
+            throw new IllegalArgumentException("Unknown tracker type for '" + name + "': " + type);
+        }
+        if (secondary != null && !type.equals(TrackerRegistry.INTEGRAL)) {
+            throw new IllegalArgumentException("Only integral trackers can have a 'secondary' statistic: " + name);
+        }
+        if (type.equals(TrackerRegistry.PERCENTILE) && (percentile == null || percentile < 0 || percentile > 100)) {
+            throw new IllegalArgumentException("Percentile trackers require a 'percentile' between 0 and 100: " + name);
+        }
+        if (type.equals(TrackerRegistry.TIME_ABOVE) && threshold == null) {
+            throw new IllegalArgumentException("Time above trackers require a 'threshold': " + name);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import edu.iit.fsae.cabinet.Constants;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The registry of tracker types, and the configured trackers.
+ * <p>
+ * Trackers are read from the json file at {@code CABINET_TRACKERS}, or from the bundled {@code trackers.json} when it
+ * is not set. New tracker types can be registered before the trackers are first used.
+ *
+ * @author Noah Husby
+ */
+@UtilityClass
+@Slf4j
+public class TrackerRegistry {
+    public static final String MAX = "max";
+    public static final String MIN = "min";
+    public static final String LAST = "last";
+    public static final String MEAN = "mean";
+    public static final String STDDEV = "stddev";
+    public static final String PERCENTILE = "percentile";
+    public static final String INTEGRAL = "integral";
+    public static final String TIME_ABOVE = "time_above";
+    public static final String RATE_OF_CHANGE = "rate_of_change";
+    public static final String DELTA = "delta";
+
+    private static final Type definitionsType = new TypeToken<List<TrackerDefinition>>() {}.getType();
+    private static final Map<String, Function<TrackerDefinition, TrackingPolicy>> types = new ConcurrentHashMap<>();
+    private static volatile List<TrackerDefinition> definitions;
+
+    static {
+        register(MAX, d -> new MaxTrackingPolicy());
+        register(MIN, d -> new MinTrackingPolicy());
+        register(LAST, d -> new LastTrackingPolicy());
+        register(MEAN, d -> new MeanTrackingPolicy());
+        register(STDDEV, d -> new StdDevTrackingPolicy());
+        register(PERCENTILE, d -> new PercentileTrackingPolicy(d.getPercentile()));
+        register(INTEGRAL, d -> new IntegralTrackingPolicy(d.getSecondary() != null, d.getScale()));
+        register(TIME_ABOVE, d -> new TimeAboveTrackingPolicy(d.getThreshold()));
+        register(RATE_OF_CHANGE, d -> new RateOfChangeTrackingPolicy());
+        register(DELTA, d -> new DeltaTrackingPolicy());
+    }
+
+    /**
+     * Registers a tracker type.
+     *
+     * @param type    The name of the type, as used in the tracker configuration.
+     * @param factory Creates a fresh policy for a tracker of this type.
+     */
+    public static void register(String type, Function<TrackerDefinition, TrackingPolicy> factory) {
+        types.put(type, factory);
+    }
+
+    /**
+     * @param type The name of the type.
+     * @return True if the type has been registered.
+     */
+    public static boolean isRegistered(String type) {
+        return types.containsKey(type);
+    }
+
+    /**
+     * Creates a fresh policy for a tracker.
+     *
+     * @param definition {@link TrackerDefinition}
+     * @return {@link TrackingPolicy}
+     */
+    public static TrackingPolicy create(TrackerDefinition definition) {
+        return types.get(definition.getType()).apply(definition);
+    }
+
+    /**
+     * Gets the configured trackers, reading the configuration on first use.
+     *
+     * @return An unmodifiable list of {@link TrackerDefinition}.
+     * @throws IllegalArgumentException If the configuration is invalid.
+     */
+    public static List<TrackerDefinition> getDefinitions() {
+        if (definitions == null) {
+            synchronized (TrackerRegistry.class) {
+                if (definitions == null) {
+                    definitions = load();
+                }
+            }
+        }
+        return definitions;
+    }
+
+    private static List<TrackerDefinition> load() {
+        String path = System.getenv("CABINET_TRACKERS");
+        List<TrackerDefinition> loaded;
+        try (
+                Reader reader = path == null
+                        ? new InputStreamReader(Objects.requireNonNull(TrackerRegistry.class.getResourceAsStream("/trackers.json")), StandardCharsets.UTF_8)
+                        : new FileReader(path, StandardCharsets.UTF_8);
+        ) {
+            loaded = Constants.GSON.fromJson(reader, definitionsType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read tracker configuration.", e);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Malformed tracker configuration.", e);
+        }
+        if (loaded == null) {
+            loaded = Collections.emptyList();
+        }
+        Set<String> names = new HashSet<>();
+        for (TrackerDefinition definition : loaded) {
+            definition.validate();
+            if (!names.add(definition.getName())) {
+                throw new IllegalArgumentException("Duplicate tracker name: " + definition.getName());
+            }
+        }
+        log.info("Loaded {} trackers from {}.", loaded.size(), path == null ? "the default configuration" : path);
+        return Collections.unmodifiableList(loaded);
+    }
+}
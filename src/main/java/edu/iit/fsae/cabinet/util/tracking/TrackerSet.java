@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright 2022 Illinois Tech Motorsports
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package edu.iit.fsae.cabinet.util.tracking;
+
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import edu.iit.fsae.cabinet.util.StatisticsBinaryFormat;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fresh set of policies for the configured trackers.
+ * <p>
+ * Samples are routed to the policies through a {@link Binding}, which maps the columns of a statistics table to the
+ * policies which track them. Every policy sees each sample once, in a single pass.
+ *
+ * @author Noah Husby
+ */
+public class TrackerSet {
+    @Getter
+    private final List<TrackerDefinition> definitions;
+    private final TrackingPolicy[] policies;
+
+    public TrackerSet() {
+        this(TrackerRegistry.getDefinitions());
+    }
+
+    /**
+     * @param definitions The trackers.
+     */
+    public TrackerSet(List<TrackerDefinition> definitions) {
+        this.definitions = definitions;
+        policies = new TrackingPolicy[definitions.size()];
+        for (int i = 0; i < policies.length; i++) {
+            policies[i] = TrackerRegistry.create(definitions.get(i));
+        }
+    }
+
+    /**
+     * Binds the trackers to the columns of a statistics table.
+     *
+     * @param names The statistic name of each column.
+     * @return {@link Binding}
+     */
+    public Binding bind(List<String> names) {
+        return new Binding(names);
+    }
+
+    /**
+     * Merges another set of the same trackers into this one.
+     * The other set is expected to have tracked samples which came after the samples of this set.
+     *
+     * @param other {@link TrackerSet}
+     */
+    public void merge(TrackerSet other) {
+        for (int i = 0; i < policies.length; i++) {
+            policies[i].merge(other.policies[i]);
+        }
+    }
+
+    /**
+     * Tracks every sample of a binary statistics file, in a single pass over its rows.
+     *
+     * @param reader {@link StatisticsBinaryFormat.Reader}
+     */
+    public void track(StatisticsBinaryFormat.Reader reader) throws IOException {
+        List<String> names = new ArrayList<>();
+        reader.getIds().forEach(id -> names.add(reader.getStatisticsMap().get(id)));
+        Binding binding = bind(names);
+        List<StatisticsBinaryFormat.Cursor> cursors = new ArrayList<>();
+        try (
+                StatisticsBinaryFormat.Cursor timestamps = reader.timestamps();
+        ) {
+            try {
+                for (int column : binding.columns) {
+                    StatisticsBinaryFormat.Cursor cursor = reader.column(column);
+                    cursor.next();
+                    cursors.add(cursor);
+                }
+                int row = 0;
+                while (timestamps.next()) {
+                    for (int i = 0; i < cursors.size(); i++) {
+                        StatisticsBinaryFormat.Cursor cursor = cursors.get(i);
+                        if (cursor.getRow() == row) {
+                            binding.post(binding.columns[i], timestamps.getValue(), cursor.getValue());
+                            cursor.next();
+                        }
+                    }
+                    row++;
+                }
+            } finally {
+                for (StatisticsBinaryFormat.Cursor cursor : cursors) {
+                    cursor.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the value of a tracker.
+     *
+     * @param index The index of the tracker.
+     * @return The value, or NaN if the tracker has not received any samples.
+     */
+    public double get(int index) {
+        return policies[index].get();
+    }
+
+    /**
+     * Formats the value of a tracker with its suffix.
+     *
+     * @param index The index of the tracker.
+     * @return The formatted value, or a dash if the tracker has not received any samples.
+     */
+    public String format(int index) {
+        double value = policies[index].get();
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        String suffix = definitions.get(index).getSuffix();
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return (long) value + suffix;
+        }
+        return String.format("%.2f", value) + suffix;
+    }
+
+    /**
+     * @return {@link JsonObject} of tracker name and value, which is null if the tracker has not received any samples.
+     */
+    public JsonObject toJson() {
+        JsonObject object = new JsonObject();
+        for (int i = 0; i < policies.length; i++) {
+            double value = policies[i].get();
+            String name = definitions.get(i).getName();
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                object.add(name, JsonNull.INSTANCE);
+            } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                object.addProperty(name, (long) value);
+            } else {
+                object.addProperty(name, value);
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Routes the samples of table columns to the policies which track them.
+     */
+    public class Binding {
+        private final TrackingPolicy[][] primary;
+        private final TrackingPolicy[][] secondary;
+        private final int[] columns;
+
+        private Binding(List<String> names) {
+            primary = new TrackingPolicy[names.size()][];
+            secondary = new TrackingPolicy[names.size()][];
+            List<Integer> bound = new ArrayList<>();
+            for (int c = 0; c < names.size(); c++) {
+                List<TrackingPolicy> p = new ArrayList<>();
+                List<TrackingPolicy> s = new ArrayList<>();
+                for (int i = 0; i < policies.length; i++) {
+                    TrackerDefinition definition = definitions.get(i);
+                    if (definition.getStatistic().equals(names.get(c))) {
+                        p.add(policies[i]);
+                    }
+                    if (definition.getSecondary() != null && definition.getSecondary().equals(names.get(c))) {
+                        s.add(policies[i]);
+                    }
+                }
+                primary[c] = p.isEmpty() ? null : p.toArray(new TrackingPolicy[0]);
+                secondary[c] = s.isEmpty() ? null : s.toArray(new TrackingPolicy[0]);
+                if (primary[c] != null || secondary[c] != null) {
+                    bound.add(c);
+                }
+            }
+            columns = bound.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * @return The columns which are tracked, in ascending order.
+         */
+        public int[] getColumns() {
+            return columns.clone();
+        }
+
+        /**
+         * Posts a sample of a column.
+         *
+         * @param column    The column, or -1 if the statistic is not in the table.
+         * @param timestamp The timestamp of the sample.
+         * @param value     The value of the sample.
+         */
+        public void post(int column, long timestamp, long value) {
+            if (column < 0 || column >= primary.length) {
+                return;
+            }
+            TrackingPolicy[] p = primary[column];
+            if (p != null) {
+                for (TrackingPolicy policy : p) {
+                    policy.post(timestamp, value);
+                }
+            }
+            TrackingPolicy[] s = secondary[column];
+            if (s != null) {
+                for (TrackingPolicy policy : s) {
+                    policy.postSecondary(timestamp, value);
+                }
+            }
+        }
+    }
+}
@@ -22,11 +22,39 @@ package edu.iit.fsae.cabinet.util.tracking;
 
 /**
  * A policy for handling tracking of specific statistics.
+ * <p>
+ * Policies are streaming aggregates, which see every sample once, in the order the samples were recorded.
  *
  * @author Noah Husby
  */
 public interface TrackingPolicy {
-    void post(long value);
+    /**
+     * Posts a sample of the tracked statistic.
+     *
+     * @param timestamp The timestamp of the sample, in milliseconds.
+     * @param value     The value of the sample.
+     */
+    void post(long timestamp, long value);
 
-    long get();
+    /**
+     * Posts a sample of the secondary statistic, for policies which combine two statistics.
+     *
+     * @param timestamp The timestamp of the sample, in milliseconds.
+     * @param value     The value of the sample.
+     */
+    default void postSecondary(long timestamp, long value) {
+    }
+
+    /**
+     * @return The tracked value, or NaN if no samples have been posted.
+     */
+    double get();
+
+    /**
+     * Merges the state of another policy of the same type into this one.
+     * The other policy is expected to have tracked samples which came after the samples of this policy.
+     *
+     * @param other The policy to merge.
+     */
+    void merge(TrackingPolicy other);
 }
@@ -18,24 +18,40 @@
  *
  */
 
-$.ajax({
-    url: '/api/v1/logs',
-    dataType: 'json',
-    success: function (data) {
-        for (const item of data) {
-            const date = new Date(parseInt(item.date) * 1000);
-            let row = '<tr><td class="column1">' + item.id + '</td><td class="column2">' + date.toLocaleString() + '</td><td class="column3">' + item.size + '</td><td class="column4"><ul>';
-            const subDir = '/files/' + item.id + "/" + item.id;
-            if (item.doesSheetExist) {
-                row += '<li><a href="' + subDir + '.xlsx" download title="Download Excel Sheet"><span class="material-icons-outlined">download</span></a></li>';
+const pageSize = 50;
+let nextCursor = null;
+
+function loadLogs() {
+    let url = '/api/v1/logs?limit=' + pageSize;
+    if (nextCursor !== null) {
+        url += '&before=' + nextCursor;
+    }
+    $('#load-more').prop('disabled', true);
+    $.ajax({
+        url: url,
+        dataType: 'json',
+        success: function (data) {
+            for (const item of data.logs) {
+                const date = new Date(parseInt(item.date) * 1000);
+                let row = '<tr><td class="column1">' + item.id + '</td><td class="column2">' + date.toLocaleString() + '</td><td class="column3">' + item.size + '</td><td class="column4"><ul>';
+                const subDir = '/files/' + item.id + "/" + item.id;
+                if (item.doesSheetExist) {
+                    row += '<li><a href="' + subDir + '.xlsx" download title="Download Excel Sheet"><span class="material-icons-outlined">download</span></a></li>';
+                }
+                row += '<li><a href="' + subDir + '.zip" download title="Download All as ZIP"><span class="material-icons-outlined">folder_zip</span></button></a></li>';
+                row += '<li><a href="' + subDir + '.txt" target="_blank" title="View Log"><span class="material-icons-outlined">launch</span></a></li>';
+                row += '</ul></td></tr>';
+                $('#table').append($(row));
             }
-            row += '<li><a href="' + subDir + '.zip" download title="Download All as ZIP"><span class="material-icons-outlined">folder_zip</span></button></a></li>';
-            row += '<li><a href="' + subDir + '.txt" target="_blank" title="View Log"><span class="material-icons-outlined">launch</span></a></li>';
-            row += '</ul></td></tr>';
-            $('#table').append($(row));
+            nextCursor = data.next === undefined ? null : data.next;
+            $('#load-more').prop('disabled', false).toggle(nextCursor !== null);
+        },
+        error: function () {
+            $('#load-more').prop('disabled', false);
+            console.error('Failed to load logs from the API. Make sure the backend is running and has no errors in its console')
         }
-    },
-    error: function () {
-        console.error('Failed to load logs from the API. Make sure the backend is running and has no errors in its console')
-    }
-});
+    });
+}
+
+$('#load-more').on('click', loadLogs);
+loadLogs();